@@ -0,0 +1,31 @@
+import java.util.Arrays;
+
+// Board storage backed by a fixed-size 2D array
+public class ArrayBoardStore implements BoardStore {
+    private int gridSize; // Grid size of the board
+    private int[][] board = new int[0][0]; // The game board
+
+    @Override
+    public void clear(int gridSize) {
+        this.gridSize = gridSize;
+        board = new int[gridSize][gridSize]; // Initialize the board array
+        for (int[] row : board) {
+            Arrays.fill(row, EMPTY); // Start with every cell empty
+        }
+    }
+
+    @Override
+    public int get(int x, int y) {
+        return board[x][y];
+    }
+
+    @Override
+    public void set(int x, int y, int value) {
+        board[x][y] = value;
+    }
+
+    @Override
+    public int getGridSize() {
+        return gridSize;
+    }
+}
@@ -0,0 +1,27 @@
+// The available board storage backends, selectable at runtime by name
+public enum BoardBackend {
+    ARRAY,
+    HASH_MAP,
+    PRIMITIVE_MAP;
+
+    // Create a fresh, empty store for this backend
+    public BoardStore createStore() {
+        switch (this) {
+            case HASH_MAP:
+                return new HashMapBoardStore();
+            case PRIMITIVE_MAP:
+                return new PrimitiveMapBoardStore();
+            case ARRAY:
+            default:
+                return new ArrayBoardStore();
+        }
+    }
+
+    // Look up a backend by name (e.g. "array", "hash_map", "primitive_map"), falling back to the default
+    public static BoardBackend fromName(String name, BoardBackend defaultBackend) {
+        if (name == null || name.isEmpty()) {
+            return defaultBackend;
+        }
+        return valueOf(name.trim().toUpperCase().replace('-', '_'));
+    }
+}
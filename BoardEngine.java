@@ -0,0 +1,711 @@
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+// Headless Onet game logic shared by both Swing front-ends.
+// The board lives in a BoardStore, so the same rules run on the 2D array and the HashMap backend
+// and the engine can be driven without any window.
+public class BoardEngine {
+    private final BoardStore board; // Storage backend holding the icon ids
+    private final int numIcons; // Number of distinct icons
+    private int gridSize; // Current grid size
+    private ConnectionRule rule = ConnectionRule.CLASSIC; // Which lines may connect two tiles
+    private final PaddedGrid grid = new PaddedGrid(); // Flat copy of the board with an empty ring around it, walked by every search
+    private final TwoTurnConnector twoTurn = new TwoTurnConnector(grid); // Line-of-sight checks for the classic rule
+    private final MoveIndex moveIndex; // Where each icon is and which pairs can be connected right now
+    private final EmptyRegions regions = new EmptyRegions(grid); // Which empty cells are joined, to turn down walled-off pairs quickly
+    private final OccupancyBits occupied = new OccupancyBits(); // Bitboard of the cells that still hold a tile, with their count
+    private BoardSolver solver; // Proves boards can be cleared, created on first use
+
+    private static final int MAX_STUCK_SHUFFLES = 100; // Give up reshuffling a stuck board after this many tries
+    private static final int ATTEMPT_SHARE = 4; // Each solver attempt may use 1/4 of the remaining budget, so hard boards are dropped for fresh ones
+    private static final long SOLVER_TIME_CAP_NANOS = 1_000_000_000L; // Safety net for the solver on slow machines, far above what the node budgets take
+
+    // Path search buffers, kept between calls
+    private final SearchSide forward = new SearchSide(); // Search from the start
+    private final SearchSide backward = new SearchSide(); // Search from the end
+    private int meetSegments; // Segments of the best line found so far
+    private int meetCell; // Cell where the two searches met on that line, or -1
+    private boolean meetBend; // Whether the line bends at meetCell, or meetCell is the start or the end
+    private int meetFrom; // Corner before meetCell on the start's side, or -1
+    private int meetTo; // Corner after meetCell on the end's side, or -1
+    private int searchGeneration; // Stamp of the current search
+    private final int parallelSearchCells = Integer.getInteger("onet.parallelSearchCells", 1 << 16); // Boards this big are searched on every core
+    private ParallelPathSearch parallelSearch; // Created on the first board that big
+
+    // Dealing and shuffling
+    private SplittableRandom seeds = new SplittableRandom(); // Seeds of the boards dealt by initializeBoard(gridSize)
+    private SplittableRandom random = new SplittableRandom(); // Deals the current board and makes its shuffles
+    private long seed; // Seed the current board was dealt from
+    private int layoutVersion; // Bumped whenever tiles are dealt, loaded or moved
+    private int[] dealIcons = new int[0]; // Icons being dealt or shuffled
+    private int[] shuffleCells = new int[0]; // Occupied cells, in the order their icons are collected
+
+    public BoardEngine(BoardStore board, int numIcons) {
+        this.board = board;
+        this.numIcons = numIcons;
+        this.moveIndex = new MoveIndex(grid, twoTurn, numIcons);
+    }
+
+    public BoardEngine(BoardBackend backend, int numIcons) {
+        this(backend.createStore(), numIcons);
+    }
+
+    public int getGridSize() {
+        return gridSize;
+    }
+
+    // Draw the seeds of later boards from seed, so the same calls deal and shuffle the same boards
+    public void setSeed(long seed) {
+        seeds = new SplittableRandom(seed);
+    }
+
+    // Seed the current board was dealt from; initializeBoard(gridSize, getSeed()) deals it again,
+    // or constructBoard(gridSize, getSeed()) if generateSolvableBoard built it
+    public long getSeed() {
+        return seed;
+    }
+
+    public ConnectionRule getRule() {
+        return rule;
+    }
+
+    public void setRule(ConnectionRule rule) {
+        this.rule = rule;
+        solver = null; // The solver is built for one rule
+        if (gridSize > 0) {
+            moveIndex.rebuild(rule); // Which pairs connect depends on the rule
+        }
+    }
+
+    // True if at least one pair on the board can be matched right now
+    public boolean hasAvailableMoves() {
+        return moveIndex.hasMoves();
+    }
+
+    // Number of pairs that can be matched right now
+    public int getAvailableMoveCount() {
+        return moveIndex.getMoveCount();
+    }
+
+    // Reshuffle while tiles are left but none of them can be matched; returns true if the board was shuffled
+    public boolean shuffleIfStuck() {
+        boolean shuffled = false;
+        for (int attempt = 0; attempt < MAX_STUCK_SHUFFLES && !moveIndex.hasMoves() && occupied.count() > 0; attempt++) {
+            shuffleBoard();
+            shuffled = true;
+        }
+        return shuffled;
+    }
+
+    // Deal boards until the solver proves one can be cleared, or maxNodes solver positions have been spent.
+    // Even-sized boards the solver cannot prove in that budget, or which are too big for it to try, are built
+    // with constructBoard instead, so they are always SOLVED.
+    // The board kept depends only on the seed and maxNodes, so a seed always gives the same level on any machine.
+    // Returns the status of the board that was kept; on UNKNOWN or UNSOLVABLE the last board dealt stays.
+    public BoardSolver.Status generateSolvableBoard(int gridSize, long maxNodes) {
+        boolean constructible = gridSize % 2 == 0;
+        if (constructible && gridSize * gridSize / 2 > maxNodes / ATTEMPT_SHARE) {
+            constructBoard(gridSize, seeds.nextLong()); // Not even one line of play would fit in the solver's budget
+            return BoardSolver.Status.SOLVED;
+        }
+
+        long deadline = System.nanoTime() + SOLVER_TIME_CAP_NANOS;
+        long nodesLeft = maxNodes;
+        BoardSolver.Status status;
+        do {
+            initializeBoard(gridSize);
+            status = solve(nodesLeft, deadline);
+            nodesLeft -= solver == null ? 0 : solver.getNodes();
+        } while (status != BoardSolver.Status.SOLVED && nodesLeft > 0 && System.nanoTime() < deadline);
+
+        if (status != BoardSolver.Status.SOLVED && constructible) {
+            constructBoard(gridSize, seeds.nextLong());
+            return BoardSolver.Status.SOLVED;
+        }
+        return status;
+    }
+
+    // Build a board that can be cleared from seed, for an even gridSize; the same seed always gives the same board.
+    // Cells are grouped into rings around the middle of the board, and each pair is dealt to two cells on the same side
+    // of one ring. Clearing the rings from the outside in then clears the board: when a pair is taken, every cell
+    // between it and the edge of the board is already empty, so both tiles have a straight way out to the ring
+    // around the board and are joined by a line with two bends along it, whatever the rule.
+    public void constructBoard(int gridSize, long seed) {
+        if (gridSize % 2 != 0) {
+            throw new IllegalArgumentException("Only boards with an even grid size can be built, got " + gridSize);
+        }
+        long startTime = Metrics.start();
+
+        this.seed = seed;
+        random = new SplittableRandom(seed); // Later shuffles of this board follow from the seed too
+        this.gridSize = gridSize;
+        board.clear(gridSize);
+        int numPairs = gridSize * gridSize / 2;
+        int[] icons = dealIcons = ensureCapacity(dealIcons, numPairs);
+        for (int i = 0; i < numPairs; i++) {
+            icons[i] = i % numIcons; // Every icon gets its share of the pairs
+        }
+        shuffleInPlace(icons, numPairs);
+
+        int[] side = shuffleCells = ensureCapacity(shuffleCells, gridSize);
+        int pair = 0;
+        for (int ring = 0; ring < gridSize / 2; ring++) {
+            int low = ring; // First and last row and column of the ring
+            int high = gridSize - 1 - ring;
+            // The rows of the ring take its corners, so every side has an even number of cells
+            for (int s = 0; s < 4; s++) {
+                int count = 0;
+                for (int i = s < 2 ? low : low + 1; i <= (s < 2 ? high : high - 1); i++) {
+                    side[count++] = s == 0 ? low * gridSize + i // Row x = low, left by going to -x
+                            : s == 1 ? high * gridSize + i // Row x = high, left by going to +x
+                            : s == 2 ? i * gridSize + low // Column y = low, left by going to -y
+                            : i * gridSize + high; // Column y = high, left by going to +y
+                }
+                shuffleInPlace(side, count); // Which two cells of the side make a pair
+                for (int i = 0; i < count; i += 2, pair++) {
+                    board.set(side[i] / gridSize, side[i] % gridSize, icons[pair]);
+                    board.set(side[i + 1] / gridSize, side[i + 1] % gridSize, icons[pair]);
+                }
+            }
+        }
+        rebuildIndexes();
+        Metrics.stop(Metrics.Operation.INITIALIZE_BOARD, startTime);
+    }
+
+    // Shuffle the remaining tiles until the solver proves the board can still be cleared, or maxNodes solver positions have been spent
+    public BoardSolver.Status shuffleSolvable(long maxNodes) {
+        long deadline = System.nanoTime() + SOLVER_TIME_CAP_NANOS;
+        long nodesLeft = maxNodes;
+        BoardSolver.Status status;
+        do {
+            shuffleBoard();
+            status = solve(nodesLeft, deadline);
+            nodesLeft -= solver == null ? 0 : solver.getNodes();
+        } while (status != BoardSolver.Status.SOLVED && nodesLeft > 0 && System.nanoTime() < deadline);
+        return status;
+    }
+
+    // Run the solver on the current board with a share of the nodes left
+    private BoardSolver.Status solve(long nodesLeft, long deadline) {
+        if (occupied.isEmpty()) {
+            return BoardSolver.Status.SOLVED;
+        }
+        if (solver == null) {
+            solver = new BoardSolver(numIcons, rule);
+        }
+        return solver.solve(board, gridSize, Math.max(nodesLeft / ATTEMPT_SHARE, 1), deadline);
+    }
+
+    // A pair of points that can be matched right now, or null if there is no move left
+    public Point[] findHint() {
+        long pair = moveIndex.hint();
+        if (pair < 0) {
+            return null;
+        }
+        return toPoints(pair);
+    }
+
+    // The index-th pair that can be matched right now, for 0 <= index < getAvailableMoveCount()
+    public Point[] getAvailableMove(int index) {
+        return toPoints(moveIndex.moveAt(index));
+    }
+
+    private Point[] toPoints(long pair) {
+        int a = PairSet.first(pair);
+        int b = PairSet.second(pair);
+        return new Point[]{new Point(a / gridSize, a % gridSize), new Point(b / gridSize, b % gridSize)};
+    }
+
+    // Icon id at (x, y), or BoardStore.EMPTY if the tile has been removed
+    public int getIcon(int x, int y) {
+        return board.get(x, y);
+    }
+
+    // Copy of the board, icons[x * gridSize + y], in the form loadBoard takes.
+    // Read from the padded grid, which holds the same icons, so it is as fast on every backend.
+    public int[] getIcons() {
+        int[] icons = new int[gridSize * gridSize];
+        for (int cell = 0; cell < icons.length; cell++) {
+            icons[cell] = grid.get(cell / gridSize, cell % gridSize);
+        }
+        return icons;
+    }
+
+    // Changes whenever tiles are dealt, loaded or shuffled, but not when a pair is removed,
+    // so a copy of the board can tell when it has to be taken again as a whole
+    public int getLayoutVersion() {
+        return layoutVersion;
+    }
+
+    // Initialize the game board with shuffled icon pairs, dealt from the next seed
+    public void initializeBoard(int gridSize) {
+        initializeBoard(gridSize, seeds.nextLong());
+    }
+
+    // Initialize the game board with icon pairs dealt from seed; the same seed always gives the same board
+    public void initializeBoard(int gridSize, long seed) {
+        long startTime = Metrics.start();
+
+        this.seed = seed;
+        random = new SplittableRandom(seed); // Later shuffles of this board follow from the seed too
+        this.gridSize = gridSize;
+        board.clear(gridSize);
+        int numPairs = (gridSize * gridSize) / 2; // Number of pairs in the grid
+        int tiles = numPairs * 2;
+        int[] icons = dealIcons = ensureCapacity(dealIcons, tiles);
+        for (int i = 0; i < numPairs; i++) {
+            icons[2 * i] = i % numIcons; // Add the same icon twice to make pairs
+            icons[2 * i + 1] = i % numIcons;
+        }
+
+        shuffleInPlace(icons, tiles); // Shuffle the positions to randomize
+
+        // Tiles fill the cells in row-major order; with an odd number of cells the last one stays empty
+        for (int cell = 0; cell < tiles; cell++) {
+            board.set(cell / gridSize, cell % gridSize, icons[cell]); // Assign a random icon to each cell
+        }
+        rebuildIndexes();
+        Metrics.stop(Metrics.Operation.INITIALIZE_BOARD, startTime);
+    }
+
+    // Put back a saved board: icons[x * gridSize + y] is the icon at (x, y), or BoardStore.EMPTY.
+    // seed is the seed the board was first dealt from; later shuffles follow from it afresh.
+    public void loadBoard(int gridSize, int[] icons, long seed) {
+        this.seed = seed;
+        random = new SplittableRandom(seed);
+        this.gridSize = gridSize;
+        board.clear(gridSize);
+        for (int cell = 0; cell < gridSize * gridSize; cell++) {
+            if (icons[cell] != BoardStore.EMPTY) {
+                board.set(cell / gridSize, cell % gridSize, icons[cell]);
+            }
+        }
+        rebuildIndexes();
+    }
+
+    // Build every index of the board from scratch after the whole board was replaced
+    private void rebuildIndexes() {
+        layoutVersion++;
+        grid.reset(board, gridSize);
+        occupied.reset(board, gridSize);
+        twoTurn.reset();
+        regions.reset();
+        moveIndex.rebuild(rule);
+    }
+
+    public boolean isMatch(Point p1, Point p2) {
+        long startTime = Metrics.start(); // Start timing the match check
+
+        // Two different cells holding the same (still present) icon
+        int icon = board.get(p1.x, p1.y);
+        boolean result = !p1.equals(p2) && icon != BoardStore.EMPTY && icon == board.get(p2.x, p2.y);
+
+        Metrics.stop(Metrics.Operation.IS_MATCH, startTime);
+        return result;
+    }
+
+    // Logic to check if two points can be connected
+    public boolean isConnectable(Point p1, Point p2) {
+        boolean result;
+        if (!regions.mayConnect(p1.x, p1.y, p2.x, p2.y)) {
+            result = false; // No empty region touches both tiles, so no line can join them
+        } else if (rule == ConnectionRule.CLASSIC) {
+            result = connectTwoBends(p1.x, p1.y, p2.x, p2.y); // At most two bends
+        } else {
+            result = connectTwoBends(p1.x, p1.y, p2.x, p2.y) || search(p1.x, p1.y, p2.x, p2.y); // Check if there's a path between the points
+        }
+        return result;
+    }
+
+    // The match between two points with its connecting line, or null if they cannot be matched.
+    // Does the same work as isMatch plus isConnectable, searching for the line only once.
+    public MatchResult findMatch(Point p1, Point p2) {
+        GameEvents.MatchAttempt event = new GameEvents.MatchAttempt();
+        event.begin();
+
+        ArrayList<Point> path = null;
+        if (isMatch(p1, p2)) {
+            path = findConnection(p1, p2);
+        }
+
+        if (event.shouldCommit()) {
+            event.gridSize = gridSize;
+            event.rule = rule.name();
+            event.sameIcon = path != null;
+            event.connected = path != null && !path.isEmpty();
+            event.linePoints = path == null ? 0 : path.size();
+            event.commit();
+        }
+        return path == null || path.isEmpty() ? null : new MatchResult(p1, p2, path);
+    }
+
+    // The line that connects two points under the current rule, as its start, bends and end.
+    // Empty if they cannot be connected. This is the check made for every picked pair, so it is the one that is timed.
+    public ArrayList<Point> findConnection(Point p1, Point p2) {
+        long startTime = Metrics.start(); // Start timing the connection check
+
+        ArrayList<Point> line;
+        if (rule == ConnectionRule.CLASSIC) {
+            line = connectTwoBends(p1.x, p1.y, p2.x, p2.y) ? twoTurn.bendPath(p1.x, p1.y, p2.x, p2.y) : new ArrayList<>();
+        } else {
+            line = findPath(p1, p2);
+        }
+
+        Metrics.stop(Metrics.Operation.FIND_CONNECTION, startTime);
+        return line;
+    }
+
+    // Find a path with as few bends as possible between two points through empty cells,
+    // as its start, bends and end
+    public ArrayList<Point> findPath(Point start, Point end) {
+        ArrayList<Point> path = new ArrayList<>();
+        if (connectTwoBends(start.x, start.y, end.x, end.y)) {
+            path = twoTurn.bendPath(start.x, start.y, end.x, end.y); // Two bends at most, found by the O(gridSize) scans
+        } else if (search(start.x, start.y, end.x, end.y)) {
+            path = reconstructPath(); // Reconstruct the path
+        }
+        return path; // Empty if no path is found
+    }
+
+    // Join (x1, y1) and (x2, y2) with at most two bends by the run-length scans, keeping the line for twoTurn.bendPath().
+    // Recorded as a path search when it finds the line, or when it is the only search the rule makes;
+    // otherwise search() records the search that follows.
+    private boolean connectTwoBends(int x1, int y1, int x2, int y2) {
+        GameEvents.PathSearch event = new GameEvents.PathSearch();
+        event.begin();
+        if (!regions.mayConnect(x1, y1, x2, y2)) {
+            if (rule == ConnectionRule.CLASSIC && event.shouldCommit()) {
+                commitEvent(event, "walledOff", 0, 0);
+            }
+            return false; // Walled apart
+        }
+        boolean connected = twoTurn.connect(x1, y1, x2, y2);
+        if ((connected || rule == ConnectionRule.CLASSIC) && event.shouldCommit()) {
+            commitEvent(event, connected ? "found" : "unreachable", twoTurn.getLinesTried(),
+                    connected ? lineLength(twoTurn.bendPath(x1, y1, x2, y2)) : 0);
+        }
+        return connected;
+    }
+
+    // Search from (sx, sy) to (ex, ey) over empty cells for the line with the fewest bends, leaving meetCell and
+    // the corners around it for reconstructPath(). Both ends are searched alike: cells are labelled in layers by the
+    // straight segments needed to reach them, each cell of a layer casting a ray in every direction that labels the
+    // cells it crosses with one segment more; a ray stops where a ray with no more segments already went on,
+    // so each cell is crossed only a few times. The side with the smaller next layer is expanded first, and every
+    // cell a ray crosses that the other side has labelled joins a line. Once each side has labelled every cell up to
+    // f and b segments, every line of up to f + b segments has been seen, so the search stops as soon as the best
+    // line found is at most one segment longer.
+    // Cells are PaddedGrid indices, so the line may go around the outside of the board through the ring,
+    // and all buffers are reused between calls, so a search allocates nothing once the buffers fit the grid.
+    private boolean search(int sx, int sy, int ex, int ey) {
+        GameEvents.PathSearch event = new GameEvents.PathSearch();
+        event.begin();
+        meetCell = -1;
+        if (!regions.mayConnect(sx, sy, ex, ey)) {
+            commitSearch(event, "walledOff", 0);
+            return false; // Walled apart, no need to flood the whole region to find out
+        }
+        ensureSearchBuffers();
+        int start = grid.index(sx, sy);
+        int end = grid.index(ex, ey);
+        if (gridSize * gridSize >= parallelSearchCells && ForkJoinPool.getCommonPoolParallelism() > 1) {
+            return parallelSearch(start, end, event);
+        }
+        int generation = nextGeneration();
+
+        forward.begin(start, generation);
+        backward.begin(end, generation);
+        meetSegments = Integer.MAX_VALUE;
+        int forwardDone = 0; // Segments up to which each side has labelled every cell
+        int backwardDone = 0;
+        while (meetSegments > forwardDone + backwardDone + 1 && !forward.isDone() && !backward.isDone()) {
+            if (backward.frontier() < forward.frontier()) {
+                backwardDone = expandLayer(backward, forward, true, generation);
+            } else {
+                forwardDone = expandLayer(forward, backward, false, generation);
+            }
+        }
+        commitSearch(event, meetCell >= 0 ? "found" : "unreachable", forward.tail + backward.tail);
+        return meetCell >= 0;
+    }
+
+    // Cast the rays of the next layer of own and return the segments of the cells they labelled.
+    // fromEnd tells whether own is the search from the end.
+    private int expandLayer(SearchSide own, SearchSide other, boolean fromEnd, int generation) {
+        int reach = own.level() + 1; // Segments of a line that turns at a cell of this layer
+        int otherEnd = other.queue[0];
+        while (!own.isDone() && own.level() < reach) {
+            int current = own.queue[own.head++];
+
+            // Cast a ray in each direction; the wall around the ring is never empty, so no bounds check is needed
+            for (int i = 0; i < 4; i++) {
+                int step = grid.offset(i);
+                int label = reach << 2 | i;
+                for (int next = current + step; next == otherEnd || grid.isEmpty(next); next += step) {
+                    if (other.visited[next] == generation) {
+                        meet(other, fromEnd, current, next, reach, i);
+                        if (next == otherEnd) {
+                            break; // The end is a tile, so the ray stops there
+                        }
+                    }
+                    if (own.visited[next] != generation) {
+                        own.visited[next] = generation; // Mark the new position as visited
+                        own.segments[next] = label;
+                        own.parent[next] = current; // Remember the corner we came from
+                        own.queue[own.tail++] = next; // Each cell is queued at most once, so the queue never overflows
+                    } else if ((own.segments[next] >> 2) < reach || own.segments[next] == label) {
+                        break; // Reached by a line with fewer segments, or by the same kind of ray, which goes on from there
+                    }
+                }
+            }
+        }
+        return reach;
+    }
+
+    // A ray of reach segments going in direction dir from corner crossed cell, which the other side has labelled:
+    // keep the line through cell if it is the best so far
+    private void meet(SearchSide other, boolean fromEnd, int corner, int cell, int reach, int dir) {
+        int otherLabel = other.segments[cell];
+        int segments = reach + (otherLabel >> 2);
+        boolean bend = true;
+        if (otherLabel >> 2 > 0) { // Not the other side's end, which the line only has to reach
+            int otherDir = otherLabel & 3;
+            if (otherDir == dir) {
+                return; // Both went the same way, so the line would turn back on itself
+            }
+            if (otherDir == (dir ^ 1)) {
+                segments--; // Head on, so the two segments are one
+                bend = false;
+            }
+        }
+        if (segments < meetSegments) {
+            meetSegments = segments;
+            meetCell = cell;
+            meetBend = bend;
+            meetFrom = fromEnd ? other.parent[cell] : corner;
+            meetTo = fromEnd ? corner : other.parent[cell];
+        }
+    }
+
+    // The same search with each layer spread over the pool; it finds a line with as few bends,
+    // but without the run length checks, so it goes on until a ray reaches the end
+    private boolean parallelSearch(int start, int end, GameEvents.PathSearch event) {
+        if (parallelSearch == null) {
+            parallelSearch = new ParallelPathSearch(grid, ForkJoinPool.commonPool());
+        }
+        boolean found = parallelSearch.search(start, end, forward.parent);
+        meetCell = found ? end : -1;
+        meetBend = true;
+        meetFrom = forward.parent[end];
+        meetTo = -1;
+        commitSearch(event, found ? "found" : "unreachable", parallelSearch.getCellsVisited());
+        return found;
+    }
+
+    // Fill in and commit a search event if a recording wants it; the path is only walked then
+    private void commitSearch(GameEvents.PathSearch event, String outcome, int cellsVisited) {
+        if (event.shouldCommit()) {
+            commitEvent(event, outcome, cellsVisited, meetCell >= 0 ? lineLength(reconstructPath()) : 0);
+        }
+    }
+
+    // Fill in and commit a search event that a recording wants
+    private void commitEvent(GameEvents.PathSearch event, String outcome, int cellsVisited, int pathLength) {
+        event.gridSize = gridSize;
+        event.cellsVisited = cellsVisited;
+        event.pathLength = pathLength;
+        event.outcome = outcome;
+        event.commit();
+    }
+
+    // Cells on a line given as its start, bends and end, both ends included
+    private static int lineLength(ArrayList<Point> line) {
+        int length = 1;
+        for (int i = 0; i + 1 < line.size(); i++) {
+            length += Math.abs(line.get(i + 1).x - line.get(i).x) + Math.abs(line.get(i + 1).y - line.get(i).y);
+        }
+        return length;
+    }
+
+    // Grow the search buffers when the grid is bigger than they are
+    private void ensureSearchBuffers() {
+        int cells = grid.size();
+        if (forward.visited.length < cells) {
+            forward.allocate(cells);
+            backward.allocate(cells);
+            searchGeneration = 0;
+        }
+    }
+
+    // Stamp for the next search; a cell is visited only if it carries the current stamp
+    private int nextGeneration() {
+        searchGeneration++;
+        if (searchGeneration == 0) {
+            Arrays.fill(forward.visited, 0); // The stamp wrapped around, so old marks must be cleared once
+            Arrays.fill(backward.visited, 0);
+            searchGeneration = 1;
+        }
+        return searchGeneration;
+    }
+
+    // Rebuild the line of the last search from its start point to its end point, one point per corner
+    private ArrayList<Point> reconstructPath() {
+        ArrayList<Point> path = new ArrayList<>();
+        for (int at = meetFrom; at != -1; at = forward.parent[at]) {
+            path.add(new Point(grid.xOf(at), grid.yOf(at))); // Ring cells are at -1 or gridSize
+        }
+        Collections.reverse(path); // The start's side was walked back from meetCell
+        if (meetBend) {
+            path.add(new Point(grid.xOf(meetCell), grid.yOf(meetCell)));
+        }
+        for (int at = meetTo; at != -1; at = backward.parent[at]) {
+            path.add(new Point(grid.xOf(at), grid.yOf(at)));
+        }
+        return path;
+    }
+
+    public void removeImages(Point p1, Point p2) {
+        if (p1 != null && p2 != null) {
+            long startTime = Metrics.start(); // Start timing the removal
+
+            int icon1 = board.get(p1.x, p1.y);
+            int icon2 = board.get(p2.x, p2.y);
+
+            // Mark the board positions as empty
+            board.set(p1.x, p1.y, BoardStore.EMPTY);
+            board.set(p2.x, p2.y, BoardStore.EMPTY);
+            grid.set(p1.x, p1.y, BoardStore.EMPTY);
+            grid.set(p2.x, p2.y, BoardStore.EMPTY);
+            occupied.clear(p1.x, p1.y);
+            occupied.clear(p2.x, p2.y);
+            twoTurn.cellEmptied(p1.x, p1.y); // Extend the empty runs through the new gaps
+            twoTurn.cellEmptied(p2.x, p2.y);
+            regions.cellEmptied(p1.x, p1.y); // Join the new gaps to the regions around them
+            regions.cellEmptied(p2.x, p2.y);
+
+            if (icon1 == icon2 && icon1 != BoardStore.EMPTY) {
+                moveIndex.tilesRemoved(icon1, p1.x * gridSize + p1.y, p2.x * gridSize + p2.y, rule);
+            } else {
+                moveIndex.rebuild(rule); // Not a matching pair, so update the index the slow way
+            }
+
+            Metrics.stop(Metrics.Operation.REMOVE_IMAGES, startTime);
+        }
+    }
+
+    public boolean isBoardEmpty() {
+        long startTime = Metrics.start(); // Start timing the empty board check
+
+        boolean result = occupied.isEmpty(); // The bitboard counts the tiles left, so there is nothing to scan
+
+        Metrics.stop(Metrics.Operation.IS_BOARD_EMPTY, startTime);
+        return result;
+    }
+
+    // Shuffle the remaining tiles, leaving empty cells where they are
+    public void shuffleBoard() {
+        long startTime = Metrics.start(); // Start timing the board shuffling
+        GameEvents.Shuffle event = new GameEvents.Shuffle();
+        event.begin();
+
+        // Only occupied cells are visited; the bitboard skips empty stretches a word at a time
+        int tiles = occupied.count();
+        int[] cells = shuffleCells = ensureCapacity(shuffleCells, tiles);
+        int[] icons = dealIcons = ensureCapacity(dealIcons, tiles);
+        int count = 0;
+        for (int cell = occupied.nextOccupied(0); cell >= 0; cell = occupied.nextOccupied(cell + 1)) {
+            cells[count] = cell;
+            icons[count++] = board.get(cell / gridSize, cell % gridSize); // Collect all visible icons
+        }
+
+        shuffleInPlace(icons, count); // Shuffle positions of visible icons
+
+        // Assign shuffled icons back to the game board
+        for (int i = 0; i < count; i++) {
+            board.set(cells[i] / gridSize, cells[i] % gridSize, icons[i]);
+        }
+        grid.reset(board, gridSize); // Empty cells stay put, so the runs and regions still hold
+        moveIndex.rebuild(rule); // Every icon may have moved
+        layoutVersion++;
+
+        if (event.shouldCommit()) {
+            event.gridSize = gridSize;
+            event.tiles = count;
+            event.movesAfter = moveIndex.getMoveCount();
+            event.commit();
+        }
+        Metrics.stop(Metrics.Operation.SHUFFLE_BOARD, startTime);
+    }
+
+    // Seed for shuffling a copy of this board elsewhere (see LevelPipeline.shuffle), drawn like this board's own shuffles
+    public long nextShuffleSeed() {
+        return random.nextLong();
+    }
+
+    // Put the tiles of a shuffled copy of this board on it. The copy must have its empty cells where this board has.
+    public void takeShuffle(BoardEngine shuffled) {
+        for (int cell = occupied.nextOccupied(0); cell >= 0; cell = occupied.nextOccupied(cell + 1)) {
+            board.set(cell / gridSize, cell % gridSize, shuffled.getIcon(cell / gridSize, cell % gridSize));
+        }
+        grid.reset(board, gridSize); // Empty cells stay put, so the runs and regions still hold
+        moveIndex.rebuild(rule);
+        layoutVersion++;
+    }
+
+    // Fisher-Yates shuffle of the first count values, in place and in linear time
+    private void shuffleInPlace(int[] values, int count) {
+        for (int i = count - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = values[i];
+            values[i] = values[j];
+            values[j] = swap;
+        }
+    }
+
+    private static int[] ensureCapacity(int[] array, int needed) {
+        return needed <= array.length ? array : new int[Math.max(needed, array.length * 2)];
+    }
+
+    // Labels of one side of the path search, as PaddedGrid indices
+    private static final class SearchSide {
+        int[] visited = new int[0]; // Generation stamp of the last search that labelled each cell
+        int[] parent = new int[0]; // Corner each cell was reached from, in a straight line; -1 at this side's end
+        int[] segments = new int[0]; // Straight segments of the best line from this side's end to each cell, times 4, plus the direction of its last one
+        int[] queue = new int[0]; // Labelled cells in order of segments; the first is this side's end
+        int head; // Next cell of queue to cast rays from
+        int tail; // Cells labelled so far
+
+        void allocate(int cells) {
+            visited = new int[cells];
+            parent = new int[cells];
+            segments = new int[cells];
+            queue = new int[cells];
+        }
+
+        // Start a search from cell, with no segments and no direction yet
+        void begin(int cell, int generation) {
+            head = 0;
+            tail = 0;
+            queue[tail++] = cell;
+            visited[cell] = generation;
+            segments[cell] = 0;
+            parent[cell] = -1;
+        }
+
+        boolean isDone() {
+            return head == tail; // Every cell this side can reach has cast its rays
+        }
+
+        int frontier() {
+            return tail - head; // Cells of the next layer, as whole layers are expanded at a time
+        }
+
+        int level() {
+            return segments[queue[head]] >> 2; // Segments of the next cell to cast rays from
+        }
+    }
+}
@@ -0,0 +1,241 @@
+import java.util.Arrays;
+
+// Depth-first solver that proves a board can be cleared.
+// Board states are identified by Zobrist hashes, positions already proven dead are kept in a bounded
+// transposition table, and moves are ordered using the connectivity check. The search stops after a fixed
+// number of positions, so its answer depends only on the board, and at a deadline that guards against slow machines.
+public class BoardSolver {
+    public enum Status {
+        SOLVED, // A full clearing sequence was found
+        UNSOLVABLE, // Every move order was tried (or ruled out) without clearing the board
+        UNKNOWN // The node budget or the deadline ran out first
+    }
+
+    private static final int MAX_BRANCH = 8; // Moves tried per position; more make the search wider but slower
+    private static final int TABLE_BITS = 18; // Transposition table holds 2^18 dead positions
+
+    private final int numIcons;
+    private final ConnectionRule rule;
+    private final long[] deadPositions = new long[1 << TABLE_BITS]; // Hashes of positions that cannot be cleared (0 = free)
+
+    // Working copy of the board being solved
+    private final PaddedGrid grid = new PaddedGrid();
+    private final TwoTurnConnector twoTurn = new TwoTurnConnector(grid);
+    private final MoveIndex moveIndex;
+    private int gridSize;
+    private int[] originalIcons = new int[0]; // Icons of the board as it was handed in, used to undo moves
+
+    // Search stack: the candidate moves of every position on the current line
+    private long[][] candidates = new long[0][];
+    private int[] candidateCount = new int[0];
+    private int[] nextCandidate = new int[0];
+    private boolean[] complete = new boolean[0]; // False if some moves of the position were left out, here or in a position after it
+    private final long[] scores = new long[MAX_BRANCH]; // Scores of the candidates being collected
+    private long[] solution = new long[0]; // Move played at each depth
+    private long nodes; // Positions visited by the last solve
+
+    public BoardSolver(int numIcons, ConnectionRule rule) {
+        this.numIcons = numIcons;
+        this.rule = rule;
+        this.moveIndex = new MoveIndex(grid, twoTurn, numIcons);
+    }
+
+    // Try to clear the board in source, visiting at most maxNodes positions and stopping at deadline (System.nanoTime())
+    public Status solve(BoardStore source, int gridSize, long maxNodes, long deadline) {
+        copyBoard(source, gridSize);
+        Arrays.fill(deadPositions, 0L);
+        nodes = 0;
+
+        int pairs = moveIndex.tileCount() / 2;
+        ensureStack(pairs + 1);
+        long hash = hashBoard();
+        boolean indexStale = false; // Set after an undo, since MoveIndex can only follow removals
+        int depth = 0;
+        if (!enter(depth, hash)) {
+            return Status.UNSOLVABLE;
+        }
+
+        while (true) {
+            if (depth == pairs) {
+                return Status.SOLVED; // Every tile is gone
+            }
+            if (++nodes > maxNodes || ((nodes & 63) == 0 && System.nanoTime() > deadline)) {
+                return Status.UNKNOWN;
+            }
+
+            if (nextCandidate[depth] < candidateCount[depth]) {
+                // Play the next move of this position
+                long move = candidates[depth][nextCandidate[depth]++];
+                if (indexStale) {
+                    moveIndex.rebuild(rule);
+                    indexStale = false;
+                }
+                hash ^= play(move);
+                solution[depth++] = move;
+                if (!enter(depth, hash)) {
+                    hash ^= undo(solution[--depth]); // Known dead end, try the next move instead
+                    indexStale = true;
+                }
+            } else {
+                // Every move failed, so this position is dead
+                if (complete[depth]) {
+                    deadPositions[slot(hash)] = hash;
+                }
+                if (depth == 0) {
+                    return complete[0] ? Status.UNSOLVABLE : Status.UNKNOWN;
+                }
+                hash ^= undo(solution[--depth]);
+                indexStale = true;
+                if (!complete[depth + 1]) {
+                    complete[depth] = false; // A move into a position not fully searched is not proven to fail
+                }
+            }
+        }
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    // Set up the candidate moves of the position at depth; false if it is already known to be dead
+    private boolean enter(int depth, long hash) {
+        candidateCount[depth] = 0;
+        nextCandidate[depth] = 0;
+        complete[depth] = true;
+        if (hash == 0) {
+            return true; // Only the cleared board hashes to 0, which is also what a free table slot holds
+        }
+        if (deadPositions[slot(hash)] == hash) {
+            return false;
+        }
+
+        int moveCount = moveIndex.getMoveCount();
+        long[] list = candidates[depth];
+        if (list == null) {
+            list = candidates[depth] = new long[MAX_BRANCH];
+        }
+
+        // Keep the best MAX_BRANCH moves by score (lower is better), in order
+        int count = 0;
+        for (int i = 0; i < moveCount; i++) {
+            long move = moveIndex.moveAt(i);
+            int a = PairSet.first(move);
+            int b = PairSet.second(move);
+            int icon = grid.get(a / gridSize, a % gridSize);
+            if (moveIndex.countOf(icon) == 2) {
+                // The last two tiles of an icon: taking them now never blocks anything else, so it is the only move needed
+                list[0] = move;
+                candidateCount[depth] = 1;
+                return true;
+            }
+            if (count == MAX_BRANCH && ((long) moveIndex.countOf(icon) << 8) >= scores[count - 1]) {
+                complete[depth] = false; // Cannot beat the kept moves whatever its bends, so skip the line check
+                continue;
+            }
+            long score = score(icon, a, b);
+            if (count < MAX_BRANCH) {
+                count++;
+            } else if (score >= scores[count - 1]) {
+                complete[depth] = false; // Left out
+                continue;
+            } else {
+                complete[depth] = false; // The worst kept move drops out
+            }
+            int k = count - 1;
+            while (k > 0 && scores[k - 1] > score) {
+                scores[k] = scores[k - 1];
+                list[k] = list[k - 1];
+                k--;
+            }
+            scores[k] = score;
+            list[k] = move;
+        }
+        candidateCount[depth] = count;
+        return true;
+    }
+
+    // Move ordering: icons with few tiles left first, then lines with fewer bends
+    private long score(int icon, int a, int b) {
+        int bends = 0;
+        if (rule == ConnectionRule.CLASSIC && twoTurn.connect(a / gridSize, a % gridSize, b / gridSize, b % gridSize)) {
+            bends = twoTurn.getBends();
+        }
+        return ((long) moveIndex.countOf(icon) << 8) | bends;
+    }
+
+    // Remove a pair; returns the hash change
+    private long play(long move) {
+        int a = PairSet.first(move);
+        int b = PairSet.second(move);
+        int icon = grid.get(a / gridSize, a % gridSize);
+        grid.set(a / gridSize, a % gridSize, BoardStore.EMPTY);
+        grid.set(b / gridSize, b % gridSize, BoardStore.EMPTY);
+        twoTurn.cellEmptied(a / gridSize, a % gridSize);
+        twoTurn.cellEmptied(b / gridSize, b % gridSize);
+        moveIndex.tilesRemoved(icon, a, b, rule);
+        return zobrist(icon, a) ^ zobrist(icon, b);
+    }
+
+    // Put a pair back; the move index is rebuilt lazily before the next move
+    private long undo(long move) {
+        int a = PairSet.first(move);
+        int b = PairSet.second(move);
+        int icon = originalIcons[a]; // Tiles never move during a search
+        grid.set(a / gridSize, a % gridSize, icon);
+        grid.set(b / gridSize, b % gridSize, icon);
+        twoTurn.cellFilled(a / gridSize, a % gridSize);
+        twoTurn.cellFilled(b / gridSize, b % gridSize);
+        return zobrist(icon, a) ^ zobrist(icon, b);
+    }
+
+    private void copyBoard(BoardStore source, int gridSize) {
+        this.gridSize = gridSize;
+        grid.reset(source, gridSize);
+        if (originalIcons.length < gridSize * gridSize) {
+            originalIcons = new int[gridSize * gridSize];
+        }
+        for (int x = 0; x < gridSize; x++) {
+            for (int y = 0; y < gridSize; y++) {
+                originalIcons[x * gridSize + y] = grid.get(x, y);
+            }
+        }
+        twoTurn.reset();
+        moveIndex.rebuild(rule);
+    }
+
+    private long hashBoard() {
+        long hash = 0;
+        for (int x = 0; x < gridSize; x++) {
+            for (int y = 0; y < gridSize; y++) {
+                int icon = grid.get(x, y);
+                if (icon != BoardStore.EMPTY) {
+                    hash ^= zobrist(icon, x * gridSize + y);
+                }
+            }
+        }
+        return hash;
+    }
+
+    // Zobrist key of an icon on a cell. Derived with a SplitMix64 finalizer instead of a stored table,
+    // so huge boards do not need numIcons * gridSize^2 random longs.
+    private long zobrist(int icon, int cell) {
+        long z = ((long) cell * numIcons + icon + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static int slot(long hash) {
+        return (int) (hash ^ (hash >>> 32)) & ((1 << TABLE_BITS) - 1);
+    }
+
+    private void ensureStack(int size) {
+        if (candidates.length < size) {
+            candidates = Arrays.copyOf(candidates, size);
+            candidateCount = new int[size];
+            nextCandidate = new int[size];
+            complete = new boolean[size];
+            solution = new long[size];
+        }
+    }
+}
@@ -0,0 +1,19 @@
+// Storage for the icon ids of the game board.
+// The engine only talks to this interface, so the same game logic runs on every backend.
+// get may be called from several threads at once (the match check runs off the event thread while the board
+// is painted), so it must not change any state; set is only called while no other thread reads the store.
+public interface BoardStore {
+    int EMPTY = -1; // Value of a cell whose tile has been removed
+
+    // Reset the store to an empty gridSize x gridSize board
+    void clear(int gridSize);
+
+    // Icon id at (x, y), or EMPTY if the cell holds no tile
+    int get(int x, int y);
+
+    // Put an icon id (or EMPTY) at (x, y)
+    void set(int x, int y, int value);
+
+    // Current grid size
+    int getGridSize();
+}
@@ -0,0 +1,222 @@
+import javax.swing.ImageIcon;
+import javax.swing.JComponent;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.List;
+
+// The whole game board as one component: tiles are painted straight from the engine,
+// clicks are mapped to cells with a division, and only the cells that change are repainted.
+// Cells are square, cellSize pixels wide, with cell (x, y) drawn in row x and column y.
+// The grid is framed by a margin one cell wide, where lines that go around the outside of the board are drawn,
+// so row and column -1 start at pixel 0.
+public class BoardView extends JComponent {
+    // Receives the cell under each mouse press
+    public interface CellListener {
+        void cellClicked(Point cell);
+    }
+
+    private static final Color TILE_BORDER = Color.GRAY; // Outline of each tile
+    private static final Color LINE_COLOR = Color.RED; // Connection line between matched tiles
+    private static final int LINE_WIDTH = 2;
+    private static final Color SELECTION_COLOR = Color.BLUE; // Frame around picked tiles
+    private static final int SELECTION_WIDTH = 3;
+
+    private final IconCache iconCache; // Icons scaled to the cell size
+    private final int preferredCellSize; // Cell size asked for in the preferred size
+    private BoardEngine engine; // Board being shown
+    private int gridSize;
+    private int cellSize; // Current cell size in pixels
+    private ImageIcon[] icons = new ImageIcon[0]; // Icons scaled to cellSize, indexed by icon id
+    private MatchResult match; // Match whose connection line is shown, or null
+    private final List<Point> selection = new ArrayList<>(); // Picked tiles, framed until the pick is resolved
+    private CellListener cellListener;
+
+    public BoardView(IconCache iconCache, int preferredCellSize) {
+        this.iconCache = iconCache;
+        this.preferredCellSize = preferredCellSize;
+        this.cellSize = preferredCellSize;
+        setOpaque(true);
+        setBackground(Color.WHITE);
+
+        addMouseListener(new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                Point cell = cellAt(e.getX(), e.getY());
+                if (cell != null && cellListener != null) {
+                    cellListener.cellClicked(cell);
+                }
+            }
+        });
+        addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                updateCellSize(); // The window was resized, so the tiles may need a different size
+            }
+        });
+    }
+
+    public void setCellListener(CellListener cellListener) {
+        this.cellListener = cellListener;
+    }
+
+    // Show a new level; its icons are used as they are if they were scaled to the current cell size
+    public void setLevel(LevelPipeline.Level level) {
+        engine = level.engine;
+        gridSize = level.gridSize;
+        match = null;
+        selection.clear();
+        int size = cellSizeFor(gridSize);
+        cellSize = size;
+        icons = level.iconSize == size ? level.icons : iconCache.getAll(size);
+        revalidate();
+        repaint();
+    }
+
+    // Cell size a grid of the given size would get at the current component size
+    public int cellSizeFor(int size) {
+        int side = Math.min(getWidth(), getHeight());
+        if (side < size + 2) {
+            return preferredCellSize; // Not laid out yet
+        }
+        return side / (size + 2); // The grid plus the margin on both sides
+    }
+
+    // Cell under the pixel (px, py), or null outside the board
+    public Point cellAt(int px, int py) {
+        if (px < 0 || py < 0 || cellSize <= 0) {
+            return null;
+        }
+        int x = py / cellSize - 1; // Skip the margin
+        int y = px / cellSize - 1;
+        if (x < 0 || y < 0 || x >= gridSize || y >= gridSize) {
+            return null;
+        }
+        return new Point(x, y);
+    }
+
+    // Repaint a single cell after its tile changed
+    public void repaintCell(Point cell) {
+        repaint(cellBounds(cell.x, cell.y));
+    }
+
+    // Frame a picked tile; shown right away, before the pick has been checked
+    public void select(Point cell) {
+        selection.add(cell);
+        repaintCell(cell);
+    }
+
+    // Remove the frames of all picked tiles
+    public void clearSelection() {
+        for (Point cell : selection) {
+            repaintCell(cell);
+        }
+        selection.clear();
+    }
+
+    // Show the connection line of a match, or hide it with null.
+    // Only the cells under the old and the new line are repainted.
+    public void showMatch(MatchResult match) {
+        if (this.match != null) {
+            repaint(lineBounds(this.match));
+        }
+        this.match = match;
+        if (match != null) {
+            repaint(lineBounds(match));
+        }
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        int side = (Math.max(gridSize, 1) + 2) * preferredCellSize;
+        return new Dimension(side, side);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        g.setColor(getBackground());
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+        if (engine == null) {
+            return;
+        }
+
+        // Only the cells inside the clip need painting
+        int fromRow = Math.max(clip.y / cellSize - 1, 0);
+        int toRow = Math.min((clip.y + clip.height - 1) / cellSize - 1, gridSize - 1);
+        int fromColumn = Math.max(clip.x / cellSize - 1, 0);
+        int toColumn = Math.min((clip.x + clip.width - 1) / cellSize - 1, gridSize - 1);
+        g.setColor(TILE_BORDER);
+        for (int x = fromRow; x <= toRow; x++) {
+            for (int y = fromColumn; y <= toColumn; y++) {
+                int icon = engine.getIcon(x, y);
+                if (icon != BoardStore.EMPTY) {
+                    icons[icon].paintIcon(this, g, (y + 1) * cellSize, (x + 1) * cellSize);
+                    g.drawRect((y + 1) * cellSize, (x + 1) * cellSize, cellSize - 1, cellSize - 1);
+                }
+            }
+        }
+
+        Graphics2D g2d = (Graphics2D) g;
+        if (!selection.isEmpty()) {
+            g2d.setColor(SELECTION_COLOR);
+            g2d.setStroke(new BasicStroke(SELECTION_WIDTH));
+            for (Point cell : selection) {
+                // Drawn inside the cell, so repainting the cell removes the frame
+                g2d.drawRect((cell.y + 1) * cellSize + 2, (cell.x + 1) * cellSize + 2, cellSize - 5, cellSize - 5);
+            }
+        }
+
+        if (match != null) {
+            g2d.setColor(LINE_COLOR);
+            g2d.setStroke(new BasicStroke(LINE_WIDTH));
+            drawConnectionLine(g2d, match.getPath());
+        }
+    }
+
+    // The path was found together with the match, so painting never searches again
+    private void drawConnectionLine(Graphics2D g2d, List<Point> path) {
+        for (int i = 0; i < path.size() - 1; i++) {
+            Point a = path.get(i);
+            Point b = path.get(i + 1);
+            // Draw a line between the centers of the two cells; bends outside the grid fall in the margin
+            g2d.drawLine((a.y + 1) * cellSize + cellSize / 2, (a.x + 1) * cellSize + cellSize / 2,
+                    (b.y + 1) * cellSize + cellSize / 2, (b.x + 1) * cellSize + cellSize / 2);
+        }
+    }
+
+    private Rectangle cellBounds(int x, int y) {
+        return new Rectangle((y + 1) * cellSize, (x + 1) * cellSize, cellSize, cellSize);
+    }
+
+    // Pixels covered by the connection line of a match
+    private Rectangle lineBounds(MatchResult match) {
+        Rectangle cells = match.getCellBounds();
+        return new Rectangle((cells.y + 1) * cellSize, (cells.x + 1) * cellSize,
+                cells.height * cellSize, cells.width * cellSize);
+    }
+
+    private void updateCellSize() {
+        if (engine == null) {
+            return;
+        }
+        int size = cellSizeFor(gridSize);
+        if (size != cellSize) {
+            cellSize = size;
+            icons = iconCache.getAll(size); // Older sizes drop out of the cache
+            repaint();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+import java.util.Arrays;
+
+// Open-addressing hash map from a packed int cell key to an int value.
+// Uses linear probing and backward-shift deletion, so removals leave no tombstones
+// and lookups never box or allocate.
+public class CellMap {
+    private static final int FREE = -1; // Key of an unused slot (packed cells are never negative)
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] keys;
+    private int[] values;
+    private int mask; // capacity - 1, capacity is a power of two
+    private int size;
+
+    public CellMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public CellMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    // Pack (x, y) into one non-negative key; both coordinates must be below 65536
+    public static int key(int x, int y) {
+        return (x << 16) | y;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Remove every entry and make room for expectedSize entries
+    public void clear(int expectedSize) {
+        int capacity = capacityFor(expectedSize);
+        if (capacity != keys.length) {
+            allocate(capacity);
+        } else {
+            Arrays.fill(keys, FREE);
+        }
+        size = 0;
+    }
+
+    // Value for the key, or missingValue if it is not in the map
+    public int get(int key, int missingValue) {
+        int slot = hash(key) & mask;
+        while (true) {
+            int k = keys[slot];
+            if (k == key) {
+                return values[slot];
+            }
+            if (k == FREE) {
+                return missingValue;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    public void put(int key, int value) {
+        int slot = hash(key) & mask;
+        while (true) {
+            int k = keys[slot];
+            if (k == key) {
+                values[slot] = value; // Overwrite the existing entry
+                return;
+            }
+            if (k == FREE) {
+                keys[slot] = key;
+                values[slot] = value;
+                if (++size > (mask + 1) / 2) {
+                    rehash((mask + 1) * 2); // Keep the load factor at or below 1/2
+                }
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    // Remove the key if present. Later entries of the probe chain are shifted back into the gap,
+    // which keeps every chain unbroken without leaving tombstones behind.
+    public void remove(int key) {
+        int slot = hash(key) & mask;
+        while (keys[slot] != key) {
+            if (keys[slot] == FREE) {
+                return; // Not in the map
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (keys[next] != FREE) {
+            int home = hash(keys[next]) & mask;
+            // Move the entry back if its home slot is not between the gap and its current slot (cyclically)
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = FREE;
+        size--;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, FREE);
+        mask = capacity - 1;
+    }
+
+    // Smallest power of two that holds expectedSize entries at load factor 1/2
+    private static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    // Spread the packed coordinates over the table (Fibonacci hashing)
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,5 @@
+// Which lines may connect two matching tiles
+public enum ConnectionRule {
+    CLASSIC, // Onet rule: a line with at most two bends through empty cells
+    FREE // Any path through empty cells, drawn with as few bends as possible
+}
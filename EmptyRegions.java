@@ -0,0 +1,106 @@
+import java.util.Arrays;
+
+// Disjoint sets of the empty cells: two empty cells are in the same set if they are joined by a path of empty cells.
+// Tiles are only ever removed during a level, so the sets just keep merging as cells are emptied,
+// and any path between two tiles has to run through one region touching both of them.
+// Cells are the indices of the engine's PaddedGrid, so the empty ring around the board is one more region
+// and walls are filled forever: no neighbor lookup needs a bounds check.
+// Union by size with path halving makes each query and update nearly O(1).
+public class EmptyRegions {
+    private static final int FILLED = -1; // Parent of a cell that holds a tile or a wall
+
+    private final PaddedGrid grid; // Board the regions are built from
+    private int[] parent = new int[0]; // Parent of each cell in its set tree (a root is its own parent)
+    private int[] size = new int[0]; // Number of cells in the set, valid for roots
+
+    public EmptyRegions(PaddedGrid grid) {
+        this.grid = grid;
+    }
+
+    // Rebuild the sets from the grid
+    public void reset() {
+        int cells = grid.size();
+        if (parent.length < cells) {
+            parent = new int[cells];
+            size = new int[cells];
+        }
+        Arrays.fill(parent, 0, cells, FILLED);
+        for (int cell = 0; cell < cells; cell++) {
+            if (grid.isEmpty(cell)) {
+                join(cell);
+            }
+        }
+    }
+
+    // The tile at (x, y) has been removed from the grid: the cell joins the regions around it
+    public void cellEmptied(int x, int y) {
+        int cell = grid.index(x, y);
+        if (parent[cell] == FILLED) {
+            join(cell);
+        }
+    }
+
+    // False if no path of empty cells can join the tiles at (x1, y1) and (x2, y2).
+    // True means a path may exist; the caller still has to search for one that follows its rule.
+    public boolean mayConnect(int x1, int y1, int x2, int y2) {
+        if (Math.abs(x1 - x2) + Math.abs(y1 - y2) == 1) {
+            return true; // Side by side, no empty cell needed
+        }
+
+        // Regions next to the first tile
+        int a = grid.index(x1, y1);
+        int r0 = find(a + grid.offset(0));
+        int r1 = find(a + grid.offset(1));
+        int r2 = find(a + grid.offset(2));
+        int r3 = find(a + grid.offset(3));
+        if (r0 == FILLED && r1 == FILLED && r2 == FILLED && r3 == FILLED) {
+            return false; // Walled in on every side
+        }
+
+        // Does one of them also touch the second tile?
+        int b = grid.index(x2, y2);
+        return touches(find(b + grid.offset(0)), r0, r1, r2, r3)
+                || touches(find(b + grid.offset(1)), r0, r1, r2, r3)
+                || touches(find(b + grid.offset(2)), r0, r1, r2, r3)
+                || touches(find(b + grid.offset(3)), r0, r1, r2, r3);
+    }
+
+    private static boolean touches(int region, int r0, int r1, int r2, int r3) {
+        return region != FILLED && (region == r0 || region == r1 || region == r2 || region == r3);
+    }
+
+    // Make cell a set of its own and merge it with the empty cells around it
+    private void join(int cell) {
+        parent[cell] = cell;
+        size[cell] = 1;
+        for (int dir = 0; dir < 4; dir++) {
+            union(cell, cell + grid.offset(dir));
+        }
+    }
+
+    private int find(int cell) {
+        if (parent[cell] == FILLED) {
+            return FILLED;
+        }
+        while (parent[cell] != cell) {
+            parent[cell] = parent[parent[cell]]; // Path halving
+            cell = parent[cell];
+        }
+        return cell;
+    }
+
+    private void union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA == FILLED || rootB == FILLED || rootA == rootB) {
+            return;
+        }
+        if (size[rootA] < size[rootB]) {
+            int swap = rootA;
+            rootA = rootB;
+            rootB = swap;
+        }
+        parent[rootB] = rootA; // Hang the smaller tree under the larger one
+        size[rootA] += size[rootB];
+    }
+}
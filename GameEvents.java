@@ -0,0 +1,88 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// Flight Recorder events for the engine and the games, so a recording shows search cost next to
+// event-thread stalls and GC. Start one with -XX:StartFlightRecording or from JDK Mission Control;
+// the events are in the "Onet" category.
+// While no recording is running, begin, shouldCommit and commit do nothing and the JIT removes the event objects.
+public final class GameEvents {
+    private GameEvents() {
+    }
+
+    // A click on a second tile: is it the same icon, and can the two be connected
+    @Name("onet.MatchAttempt")
+    @Label("Match Attempt")
+    @Category({"Onet", "Engine"})
+    static final class MatchAttempt extends Event {
+        @Label("Grid Size")
+        int gridSize;
+
+        @Label("Rule")
+        String rule;
+
+        @Label("Same Icon")
+        boolean sameIcon;
+
+        @Label("Connected")
+        boolean connected;
+
+        @Label("Line Points")
+        @Description("Points of the connecting line: its start, bends and end")
+        int linePoints;
+    }
+
+    // One line search between two tiles: the two-bend scans of the classic rule, or a fewest-bends search
+    @Name("onet.PathSearch")
+    @Label("Path Search")
+    @Category({"Onet", "Engine"})
+    static final class PathSearch extends Event {
+        @Label("Grid Size")
+        int gridSize;
+
+        @Label("Cells Visited")
+        @Description("Cells labelled by a fewest-bends search; for the two-bend scans, the candidate lines checked, each in O(1)")
+        int cellsVisited;
+
+        @Label("Path Length")
+        @Description("Cells on the path found, both tiles included; 0 if there is none")
+        int pathLength;
+
+        @Label("Outcome")
+        @Description("found, unreachable, or walledOff when no empty region touches both tiles")
+        String outcome;
+    }
+
+    // One shuffle of the tiles left on the board
+    @Name("onet.Shuffle")
+    @Label("Shuffle")
+    @Category({"Onet", "Engine"})
+    static final class Shuffle extends Event {
+        @Label("Grid Size")
+        int gridSize;
+
+        @Label("Tiles")
+        int tiles;
+
+        @Label("Moves After")
+        @Description("Pairs that can be matched after the shuffle")
+        int movesAfter;
+    }
+
+    // Swapping in the board of a new level, including any wait for the level pipeline
+    @Name("onet.LevelTransition")
+    @Label("Level Transition")
+    @Category({"Onet", "Game"})
+    static final class LevelTransition extends Event {
+        @Label("Level")
+        int level;
+
+        @Label("Grid Size")
+        int gridSize;
+
+        @Label("Seed")
+        long seed;
+    }
+}
@@ -0,0 +1,97 @@
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import java.util.PriorityQueue;
+
+// One scheduler for every timed thing in the game: the level countdown, clearing the connection line, effects.
+// Tasks wait in a queue ordered by due time and a single Swing timer is armed for the earliest one,
+// so every task runs on the event thread and no thread is started per event.
+// All methods must be called on the event thread.
+public class GameScheduler {
+    // A scheduled action that can be cancelled
+    public static class Task {
+        private final Runnable action;
+        private final long periodNanos; // 0 for a one-shot task
+        private long dueNanos; // System.nanoTime() at which the task runs next
+        private boolean cancelled;
+
+        private Task(Runnable action, long dueNanos, long periodNanos) {
+            this.action = action;
+            this.dueNanos = dueNanos;
+            this.periodNanos = periodNanos;
+        }
+
+        public void cancel() {
+            cancelled = true; // Dropped from the queue when it comes up
+        }
+    }
+
+    private final PriorityQueue<Task> queue = new PriorityQueue<>((a, b) -> Long.compare(a.dueNanos, b.dueNanos));
+    private final Timer timer = new Timer(0, e -> runDueTasks()); // Fires on the event thread
+
+    public GameScheduler() {
+        timer.setRepeats(false); // Re-armed for the next due task after every run
+        timer.setCoalesce(false); // A coalesced event can be dropped when the timer is re-armed from its own action
+    }
+
+    // Run action once after delayMillis
+    public Task schedule(Runnable action, long delayMillis) {
+        return add(new Task(action, System.nanoTime() + delayMillis * 1_000_000L, 0));
+    }
+
+    // Run action every periodMillis, starting after delayMillis
+    public Task scheduleAtFixedRate(Runnable action, long delayMillis, long periodMillis) {
+        return add(new Task(action, System.nanoTime() + delayMillis * 1_000_000L, periodMillis * 1_000_000L));
+    }
+
+    // Cancel every task, e.g. when the game is over
+    public void cancelAll() {
+        for (Task task : queue) {
+            task.cancel();
+        }
+        queue.clear();
+        timer.stop();
+    }
+
+    private Task add(Task task) {
+        checkThread();
+        queue.add(task);
+        armTimer();
+        return task;
+    }
+
+    private void runDueTasks() {
+        long now = System.nanoTime();
+        while (!queue.isEmpty() && queue.peek().dueNanos <= now) {
+            Task task = queue.poll();
+            if (task.cancelled) {
+                continue;
+            }
+            if (task.periodNanos > 0) {
+                task.dueNanos += task.periodNanos; // Fixed rate: the next run does not drift with this one
+                queue.add(task);
+            }
+            task.action.run();
+        }
+        armTimer();
+    }
+
+    // Arm the timer for the earliest task that is still live
+    private void armTimer() {
+        while (!queue.isEmpty() && queue.peek().cancelled) {
+            queue.poll();
+        }
+        if (queue.isEmpty()) {
+            timer.stop();
+            return;
+        }
+        long delayNanos = queue.peek().dueNanos - System.nanoTime();
+        timer.setInitialDelay((int) Math.max(0, (delayNanos + 999_999) / 1_000_000));
+        timer.restart();
+    }
+
+    private static void checkThread() {
+        if (!SwingUtilities.isEventDispatchThread()) {
+            throw new IllegalStateException("GameScheduler must be used on the event dispatch thread");
+        }
+    }
+}
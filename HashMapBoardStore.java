@@ -0,0 +1,31 @@
+import java.awt.Point;
+import java.util.HashMap;
+
+// Board storage backed by a HashMap keyed by cell position
+public class HashMapBoardStore implements BoardStore {
+    private int gridSize; // Grid size of the board
+    private final HashMap<Point, Integer> board = new HashMap<>(); // HashMap to store the board state
+
+    @Override
+    public void clear(int gridSize) {
+        this.gridSize = gridSize;
+        board.clear();
+    }
+
+    @Override
+    public int get(int x, int y) {
+        // A key per lookup, as a shared one would be overwritten by other readers; it never escapes, so the JIT can drop it
+        Integer value = board.get(new Point(x, y)); // Get the value at the point
+        return value == null ? EMPTY : value; // Missing cells count as empty
+    }
+
+    @Override
+    public void set(int x, int y, int value) {
+        board.put(new Point(x, y), value);
+    }
+
+    @Override
+    public int getGridSize() {
+        return gridSize;
+    }
+}
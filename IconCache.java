@@ -0,0 +1,65 @@
+import javax.swing.ImageIcon;
+import java.awt.Graphics2D;
+import java.awt.GraphicsEnvironment;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Icons rendered at a given cell size, keyed by (icon id, size).
+// Each icon is scaled once per size into an image in the screen's native format, so drawing it is a plain copy.
+// Only the most recently used sizes are kept; older sizes are evicted when the cell size changes.
+public class IconCache {
+    private static final int MAX_SIZES = 2; // The current level's size and the one being prepared
+
+    private final ImageIcon[] sources; // Icons at their original size
+    private final Map<Integer, ImageIcon[]> bySize = new LinkedHashMap<>(4, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, ImageIcon[]> eldest) {
+            return size() > MAX_SIZES; // Evict the least recently used size
+        }
+    };
+
+    public IconCache(ImageIcon[] sources) {
+        this.sources = sources;
+    }
+
+    public int getIconCount() {
+        return sources.length;
+    }
+
+    // The icon scaled to size x size
+    public synchronized ImageIcon get(int icon, int size) {
+        ImageIcon[] icons = bySize.computeIfAbsent(size, s -> new ImageIcon[sources.length]);
+        if (icons[icon] == null) {
+            icons[icon] = new ImageIcon(render(sources[icon], size));
+        }
+        return icons[icon];
+    }
+
+    // Every icon scaled to size x size, indexed by icon id
+    public synchronized ImageIcon[] getAll(int size) {
+        ImageIcon[] all = new ImageIcon[sources.length];
+        for (int i = 0; i < sources.length; i++) {
+            all[i] = get(i, size);
+        }
+        return all;
+    }
+
+    private static BufferedImage render(ImageIcon source, int size) {
+        BufferedImage image;
+        if (GraphicsEnvironment.isHeadless()) {
+            image = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+        } else {
+            image = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                    .getDefaultConfiguration().createCompatibleImage(size, size, Transparency.TRANSLUCENT);
+        }
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g.drawImage(source.getImage(), 0, 0, size, size, null);
+        g.dispose();
+        return image;
+    }
+}
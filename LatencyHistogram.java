@@ -0,0 +1,77 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Latency histogram that any number of threads can record into at once, without locks.
+// Values are counted in log-linear buckets: exact below 16, then 16 buckets per power of two,
+// so a percentile is within about 6% of the true value and recording is a single atomic increment.
+public class LatencyHistogram {
+    private static final int SUB_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS; // Buckets per power of two
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS; // Enough for any non-negative long
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder(); // Sum of all recorded values, for the mean
+
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        counts.incrementAndGet(bucketOf(value));
+        total.add(value);
+    }
+
+    // Number of values recorded
+    public long count() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    public long mean() {
+        long count = count();
+        return count == 0 ? 0 : total.sum() / count;
+    }
+
+    // Value at the given percentile (0-100), rounded down to its bucket, or 0 if nothing was recorded.
+    // Recording may go on meanwhile; the answer then reflects some moment during the call.
+    public long percentile(double percentile) {
+        long count = count();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return lowestValue(i);
+            }
+        }
+        return lowestValue(BUCKETS - 1);
+    }
+
+    // Forget every value recorded so far
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        total.reset();
+    }
+
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS; // Keep the top SUB_BITS + 1 bits
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    // Smallest value that falls into the bucket
+    private static long lowestValue(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+    }
+}
@@ -0,0 +1,147 @@
+import javax.swing.ImageIcon;
+import javax.swing.SwingUtilities;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+
+// Builds the next level on a worker thread while the current one is being played.
+// Dealing the board, proving it can be cleared and scaling the icons all happen off the event thread,
+// so a level transition only has to swap in the finished Level. Shuffles that must be proven are worked out there too.
+public class LevelPipeline {
+    // A dealt board together with the icons scaled to its cell size
+    public static class Level {
+        public final BoardEngine engine;
+        public final int gridSize;
+        public final int iconSize;
+        public final ImageIcon[] icons; // Scaled icons, indexed by icon id
+        public final long seed; // Seed the board was dealt from, so the level can be dealt again
+        public final BoardSolver.Status status; // SOLVED if the board is known to be clearable
+
+        Level(BoardEngine engine, int gridSize, int iconSize, ImageIcon[] icons, BoardSolver.Status status) {
+            this.engine = engine;
+            this.gridSize = gridSize;
+            this.iconSize = iconSize;
+            this.icons = icons;
+            this.seed = engine.getSeed();
+            this.status = status;
+        }
+    }
+
+    private final BoardBackend backend; // Board backend of every level
+    private final IconCache icons; // Icons scaled to each cell size
+    private final long solverNodes; // Solver positions allowed for proving a board can be cleared
+    private final SplittableRandom levelSeeds; // Seeds handed to each level's engine, drawn on the calling thread
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "level-pipeline");
+        thread.setDaemon(true); // Never keeps the game from exiting
+        thread.setPriority(Thread.MIN_PRIORITY); // Stay out of the way of the event thread
+        return thread;
+    });
+
+    private Future<Level> pending; // Level being built in the background, or null
+    private int pendingGridSize; // Grid size of the pending level
+    private long seedsDrawn; // Seeds drawn from levelSeeds so far
+
+    // Levels are dealt from seed: the same seed and the same calls give the same levels
+    public LevelPipeline(BoardBackend backend, IconCache icons, long solverNodes, long seed) {
+        this.backend = backend;
+        this.icons = icons;
+        this.solverNodes = solverNodes;
+        this.levelSeeds = new SplittableRandom(seed);
+    }
+
+    // Start building a level in the background, replacing any level that was prepared before
+    public void prepare(int gridSize, int iconSize) {
+        if (pending != null) {
+            pending.cancel(false);
+        }
+        pendingGridSize = gridSize;
+        long seed = nextSeed(); // Drawn here, not on the worker, so the order of levels fixes their seeds
+        pending = worker.submit(() -> build(gridSize, iconSize, seed));
+    }
+
+    // The level for gridSize: the prepared one if it matches (waiting for it if it is not done yet),
+    // otherwise one built right here
+    public Level take(int gridSize, int iconSize) {
+        Future<Level> future = pending;
+        pending = null;
+        if (future == null || pendingGridSize != gridSize) {
+            if (future != null) {
+                future.cancel(false);
+            }
+            return build(gridSize, iconSize, nextSeed());
+        }
+
+        Level level;
+        try {
+            level = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return build(gridSize, iconSize, nextSeed());
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Building the level failed", e.getCause());
+        }
+        if (level.iconSize != iconSize) {
+            level = new Level(level.engine, gridSize, iconSize, icons.getAll(iconSize), level.status); // The cells changed size meanwhile
+        }
+        return level;
+    }
+
+    // Seeds drawn for levels that were taken, not counting the one being prepared.
+    // A new pipeline with the same seed that skips this many seeds prepares the same next level.
+    public long getSeedsTaken() {
+        return pending != null ? seedsDrawn - 1 : seedsDrawn;
+    }
+
+    // Skip the seeds of levels played before, when a saved game is resumed
+    public void skipSeeds(long count) {
+        for (long i = 0; i < count; i++) {
+            nextSeed();
+        }
+    }
+
+    // A level with a saved board put back as it was, without dealing or proving anything
+    public Level restore(int gridSize, int iconSize, int[] board, long seed) {
+        BoardEngine engine = new BoardEngine(backend, icons.getIconCount());
+        engine.loadBoard(gridSize, board, seed);
+        engine.shuffleIfStuck(); // Only if the saved board had no move left
+        return new Level(engine, gridSize, iconSize, icons.getAll(iconSize), BoardSolver.Status.UNKNOWN);
+    }
+
+    // Shuffle the tiles of engine on the worker until the solver proves the board can still be cleared.
+    // Called on the event thread, which takes a copy of the board, so engine can be read and painted meanwhile;
+    // done gets the shuffled copy and the solver's status back on the event thread, and BoardEngine.takeShuffle
+    // puts its tiles on the board. The board must not change until then.
+    public void shuffle(BoardEngine engine, BiConsumer<BoardEngine, BoardSolver.Status> done) {
+        int gridSize = engine.getGridSize();
+        int[] board = engine.getIcons();
+        long seed = engine.nextShuffleSeed(); // Shuffles still follow from the level seed
+        ConnectionRule rule = engine.getRule();
+        worker.submit(() -> {
+            BoardEngine copy = new BoardEngine(backend, icons.getIconCount());
+            copy.setRule(rule);
+            copy.loadBoard(gridSize, board, seed);
+            BoardSolver.Status status = copy.shuffleSolvable(solverNodes);
+            if (status != BoardSolver.Status.SOLVED) {
+                copy.shuffleIfStuck(); // At least leave a move
+            }
+            SwingUtilities.invokeLater(() -> done.accept(copy, status));
+        });
+    }
+
+    private long nextSeed() {
+        seedsDrawn++;
+        return levelSeeds.nextLong();
+    }
+
+    private Level build(int gridSize, int iconSize, long seed) {
+        BoardEngine engine = new BoardEngine(backend, icons.getIconCount());
+        engine.setSeed(seed); // Every board the engine deals while looking for a solvable one follows from seed
+        BoardSolver.Status status = engine.generateSolvableBoard(gridSize, solverNodes); // Deal a board the solver proved can be cleared
+        engine.shuffleIfStuck(); // If it could not be proven, at least make sure the level starts with a move
+        return new Level(engine, gridSize, iconSize, icons.getAll(iconSize), status);
+    }
+}
@@ -0,0 +1,33 @@
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.Collections;
+import java.util.List;
+
+// A pair of tiles that can be matched, together with the line that connects them.
+// The line is searched once when the match is found and reused for every repaint.
+public class MatchResult {
+    private final List<Point> path; // Start, bends and end
+    private final Rectangle cellBounds; // Smallest block of cells holding the whole line
+
+    public MatchResult(Point start, Point end, List<Point> path) {
+        this.path = Collections.unmodifiableList(path);
+
+        int minX = start.x, maxX = start.x, minY = start.y, maxY = start.y;
+        for (Point p : path) {
+            minX = Math.min(minX, p.x);
+            maxX = Math.max(maxX, p.x);
+            minY = Math.min(minY, p.y);
+            maxY = Math.max(maxY, p.y);
+        }
+        this.cellBounds = new Rectangle(minX, minY, maxX - minX + 1, maxY - minY + 1);
+    }
+
+    public List<Point> getPath() {
+        return path;
+    }
+
+    // Bounds in cells: x spans rows and y spans columns, like the points of the path
+    public Rectangle getCellBounds() {
+        return new Rectangle(cellBounds);
+    }
+}
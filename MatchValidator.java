@@ -0,0 +1,75 @@
+import javax.swing.SwingUtilities;
+import java.awt.Point;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+// Checks a clicked pair on a worker thread, so a long search on a big board never blocks input or painting.
+// Only the newest check counts: a new check or cancel() drops the one before it, a dropped check that
+// has not started never runs, and the result of one that was already running is thrown away.
+// Results are handed back on the event thread. All methods must be called on the event thread.
+//
+// Only getIcon, getIcons and getGridSize of the engine (and BoardStore.get) are safe from several threads at once,
+// so the event thread may keep painting and saving while the worker checks a pair. Connection searches (findMatch,
+// isConnectable, findPath) are not: they reuse the engine's search buffers, union-find and line fields, so while
+// a check may be running only the worker runs them. The event thread must call cancelAndWait() before running one
+// itself (hint) or changing the board outside a result callback (shuffle).
+public class MatchValidator {
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "match-validator");
+        thread.setDaemon(true); // Never keeps the game from exiting
+        return thread;
+    });
+    private final ReentrantLock searching = new ReentrantLock(); // Held by the worker while it searches the engine
+
+    private volatile int generation; // Bumped for every check and cancel; a check whose number is old is stale
+    private Future<?> pending; // Newest check, or null
+
+    // Check whether p1 and p2 can be matched; done gets the match, or null if they cannot be matched
+    public void submit(BoardEngine engine, Point p1, Point p2, Consumer<MatchResult> done) {
+        cancel();
+        int check = generation;
+        pending = worker.submit(() -> {
+            MatchResult match;
+            searching.lock();
+            try {
+                if (check != generation) {
+                    return; // Dropped while it was queued
+                }
+                match = engine.findMatch(p1, p2);
+            } finally {
+                searching.unlock();
+            }
+            SwingUtilities.invokeLater(() -> {
+                if (check == generation) { // No newer click came in meanwhile
+                    pending = null;
+                    done.accept(match);
+                }
+            });
+        });
+    }
+
+    // True while a check is waiting for its result
+    public boolean isPending() {
+        return pending != null;
+    }
+
+    // Drop the current check without waiting for it; its callback will not run
+    public void cancel() {
+        generation++;
+        if (pending != null) {
+            pending.cancel(false); // A check that has not started is removed; a running one finishes unseen
+            pending = null;
+        }
+    }
+
+    // Drop the current check and wait until the worker has stopped reading the engine.
+    // At most one search is still running, so this waits for that search at most.
+    public void cancelAndWait() {
+        cancel();
+        searching.lock(); // Any check that takes the lock from now on sees it is stale and stops
+        searching.unlock();
+    }
+}
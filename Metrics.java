@@ -0,0 +1,146 @@
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+// Timing of the engine's operations, shared by every engine in the process.
+// Each operation has a lock-free LatencyHistogram, so recording costs a clock read and an atomic increment.
+// Timing is off unless -Donet.metrics=true is given or it is switched on at runtime (HUD, JMX),
+// and while it is off an operation pays only for reading one volatile flag.
+public final class Metrics {
+    // Timed engine operations
+    public enum Operation {
+        INITIALIZE_BOARD, IS_MATCH, FIND_CONNECTION, REMOVE_IMAGES, IS_BOARD_EMPTY, SHUFFLE_BOARD
+    }
+
+    public static final String OBJECT_NAME = "onet:type=Metrics"; // Name of the MBean in the platform MBean server
+
+    private static volatile boolean enabled = Boolean.getBoolean("onet.metrics");
+    private static final LatencyHistogram[] LATENCY = new LatencyHistogram[Operation.values().length];
+
+    static {
+        for (int i = 0; i < LATENCY.length; i++) {
+            LATENCY[i] = new LatencyHistogram();
+        }
+    }
+
+    private Metrics() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        Metrics.enabled = enabled;
+    }
+
+    // Start timing an operation: a clock reading, or 0 while timing is off
+    public static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    // Record the operation begun at start; does nothing if timing was off when it began
+    public static void stop(Operation operation, long start) {
+        if (start != 0) {
+            LATENCY[operation.ordinal()].record(System.nanoTime() - start);
+        }
+    }
+
+    public static LatencyHistogram latency(Operation operation) {
+        return LATENCY[operation.ordinal()];
+    }
+
+    public static void reset() {
+        for (LatencyHistogram histogram : LATENCY) {
+            histogram.reset();
+        }
+    }
+
+    // Publish the metrics as an MBean (onet:type=Metrics) so JConsole or any JMX client can read them
+    // and switch timing on and off. Registering twice is harmless.
+    public static void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(new Bean(), name);
+            }
+        } catch (JMException e) {
+            System.out.println("Failed to register the metrics MBean: " + e.getMessage()); // The game runs fine without it
+        }
+    }
+
+    // Management interface; an MXBean so that plain JMX clients can show the maps
+    public interface MetricsMXBean {
+        boolean isEnabled();
+
+        void setEnabled(boolean enabled);
+
+        Map<String, Long> getCounts(); // Calls timed per operation
+
+        Map<String, Long> getMeanNanos();
+
+        Map<String, Long> getP50Nanos();
+
+        Map<String, Long> getP99Nanos();
+
+        Map<String, Long> getP999Nanos();
+
+        void reset();
+    }
+
+    private static class Bean implements MetricsMXBean {
+        @Override
+        public boolean isEnabled() {
+            return Metrics.isEnabled();
+        }
+
+        @Override
+        public void setEnabled(boolean enabled) {
+            Metrics.setEnabled(enabled);
+        }
+
+        @Override
+        public Map<String, Long> getCounts() {
+            return values(LatencyHistogram::count);
+        }
+
+        @Override
+        public Map<String, Long> getMeanNanos() {
+            return values(LatencyHistogram::mean);
+        }
+
+        @Override
+        public Map<String, Long> getP50Nanos() {
+            return values(histogram -> histogram.percentile(50));
+        }
+
+        @Override
+        public Map<String, Long> getP99Nanos() {
+            return values(histogram -> histogram.percentile(99));
+        }
+
+        @Override
+        public Map<String, Long> getP999Nanos() {
+            return values(histogram -> histogram.percentile(99.9));
+        }
+
+        @Override
+        public void reset() {
+            Metrics.reset();
+        }
+
+        // One value per operation, in declaration order
+        private static Map<String, Long> values(ToLongFunction<LatencyHistogram> value) {
+            Map<String, Long> values = new LinkedHashMap<>();
+            for (Operation operation : Operation.values()) {
+                values.put(operation.name(), value.applyAsLong(latency(operation)));
+            }
+            return values;
+        }
+    }
+}
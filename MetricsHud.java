@@ -0,0 +1,74 @@
+import javax.swing.JCheckBox;
+import javax.swing.JLabel;
+import java.awt.Component;
+import java.awt.Font;
+
+// Optional in-game readout of the engine metrics. The check box switches timing on and shows,
+// for each operation, how often it ran and its p50 and p99 latency, refreshed twice a second.
+// Unchecked, timing is off again and the game pays nothing for it.
+public class MetricsHud {
+    private static final long REFRESH_MILLIS = 500; // How often the readout is updated
+
+    private final GameScheduler scheduler; // Runs the refresh on the event thread
+    private final JCheckBox toggle = new JCheckBox("Metrics");
+    private final JLabel display = new JLabel();
+    private GameScheduler.Task refreshTask; // Pending refresh while the readout is shown
+
+    public MetricsHud(GameScheduler scheduler) {
+        this.scheduler = scheduler;
+        toggle.setAlignmentX(Component.CENTER_ALIGNMENT);
+        toggle.addActionListener(e -> setShown(toggle.isSelected()));
+        display.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 10));
+        display.setAlignmentX(Component.CENTER_ALIGNMENT);
+        display.setVisible(false);
+        if (Metrics.isEnabled()) {
+            toggle.setSelected(true); // Timing was switched on with -Donet.metrics=true
+            setShown(true);
+        }
+    }
+
+    public JCheckBox getToggle() {
+        return toggle;
+    }
+
+    public JLabel getDisplay() {
+        return display;
+    }
+
+    private void setShown(boolean shown) {
+        Metrics.setEnabled(shown);
+        display.setVisible(shown);
+        if (refreshTask != null) {
+            refreshTask.cancel();
+            refreshTask = null;
+        }
+        if (shown) {
+            refreshTask = scheduler.scheduleAtFixedRate(this::refresh, 0, REFRESH_MILLIS);
+        }
+    }
+
+    private void refresh() {
+        StringBuilder text = new StringBuilder("<html><table cellpadding=0>");
+        text.append("<tr><th align=left>op</th><th>calls</th><th>p50</th><th>p99</th></tr>");
+        for (Metrics.Operation operation : Metrics.Operation.values()) {
+            LatencyHistogram latency = Metrics.latency(operation);
+            text.append("<tr><td>").append(operation)
+                    .append("</td><td align=right>").append(latency.count())
+                    .append("</td><td align=right>").append(formatNanos(latency.percentile(50)))
+                    .append("</td><td align=right>").append(formatNanos(latency.percentile(99)))
+                    .append("</td></tr>");
+        }
+        display.setText(text.append("</table></html>").toString());
+    }
+
+    // Short duration text: ns below 10 us, then us, then ms
+    private static String formatNanos(long nanos) {
+        if (nanos < 10_000) {
+            return nanos + "ns";
+        }
+        if (nanos < 10_000_000) {
+            return nanos / 1_000 + "us";
+        }
+        return nanos / 1_000_000 + "ms";
+    }
+}
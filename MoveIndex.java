@@ -0,0 +1,341 @@
+import java.util.Arrays;
+
+// Index from icon id to the cells that still hold it, plus the live set of pairs that can be connected right now.
+// Removing tiles only ever opens new lines, so after a move the only pairs that can appear are
+// the ones whose line runs through a freed cell; one scan from each freed cell finds all of them.
+// Scans walk the PaddedGrid, ring included, and report tiles as cells (x * gridSize + y).
+public class MoveIndex {
+    private final PaddedGrid grid; // Board holding the icon ids
+    private final TwoTurnConnector twoTurn; // Empty-run lengths used to walk straight lines
+    private final int numIcons;
+    private int gridSize;
+
+    private int[][] cellsByIcon; // Cells (x * gridSize + y) still holding each icon
+    private int[] iconCount; // Number of cells in each list
+    private int[] slotOf = new int[0]; // Position of each cell in its icon list, or -1
+    private final PairSet moves = new PairSet(); // Pairs that can be connected right now
+
+    // Scan buffers indexed by PaddedGrid index, kept between calls
+    private int[] hits = new int[16]; // Tiles found by the last scan
+    private int hitCount;
+    private int[] mark = new int[0]; // Generation stamps to avoid reporting a cell twice
+    private int[] reach = new int[0]; // Per hit: fewest bends (2 bits) for each first direction, 3 if not reached
+    private int generation;
+    private int[] region = new int[0]; // Flood stamps for the free rule
+    private int regionGeneration;
+    private int[] flood = new int[0]; // Flood queue for the free rule
+    private long[] grouped = new long[16]; // (icon, cell) keys used to pair up tiles by icon
+
+    public MoveIndex(PaddedGrid grid, TwoTurnConnector twoTurn, int numIcons) {
+        this.grid = grid;
+        this.twoTurn = twoTurn;
+        this.numIcons = numIcons;
+        cellsByIcon = new int[numIcons][];
+        iconCount = new int[numIcons];
+    }
+
+    public int getMoveCount() {
+        return moves.size();
+    }
+
+    public boolean hasMoves() {
+        return !moves.isEmpty();
+    }
+
+    // A connectable pair as PairSet.pair(cellA, cellB), or -1 if no move is left
+    public long hint() {
+        return moves.any();
+    }
+
+    // The index-th available move as PairSet.pair(cellA, cellB), 0 <= index < getMoveCount()
+    public long moveAt(int index) {
+        return moves.get(index);
+    }
+
+    // Number of tiles still showing the icon
+    public int countOf(int icon) {
+        return iconCount[icon];
+    }
+
+    // Number of tiles left on the board
+    public int tileCount() {
+        int total = 0;
+        for (int icon = 0; icon < numIcons; icon++) {
+            total += iconCount[icon];
+        }
+        return total;
+    }
+
+    // Cell (x * gridSize + y) of the index-th tile showing the icon
+    public int cellOf(int icon, int index) {
+        return cellsByIcon[icon][index];
+    }
+
+    // Rebuild the icon lists and the move set from scratch, e.g. after a new board or a shuffle
+    public void rebuild(ConnectionRule rule) {
+        gridSize = grid.getGridSize();
+        int cells = gridSize * gridSize;
+        if (slotOf.length < cells) {
+            slotOf = new int[cells];
+        }
+        int padded = grid.size();
+        if (mark.length < padded) {
+            mark = new int[padded];
+            reach = new int[padded];
+            region = new int[padded];
+            flood = new int[padded];
+            generation = 0;
+            regionGeneration = 0;
+        }
+        Arrays.fill(iconCount, 0);
+        Arrays.fill(slotOf, 0, cells, -1);
+        for (int x = 0; x < gridSize; x++) {
+            for (int y = 0; y < gridSize; y++) {
+                int icon = grid.get(x, y);
+                if (icon != BoardStore.EMPTY) {
+                    addToIcon(icon, x * gridSize + y);
+                }
+            }
+        }
+
+        moves.clear();
+        if (rule == ConnectionRule.CLASSIC) {
+            for (int icon = 0; icon < numIcons; icon++) {
+                for (int i = 0; i < iconCount[icon]; i++) {
+                    addMovesFrom(cellsByIcon[icon][i]);
+                }
+            }
+        } else {
+            addAdjacentMoves();
+            int stamp = nextRegionGeneration();
+            for (int cell = 0; cell < padded; cell++) {
+                if (grid.isEmpty(cell) && region[cell] != stamp) {
+                    floodRegion(cell, stamp); // Every tile on the border of one empty region can reach every other
+                    addMovesAmongHits(false);
+                }
+            }
+        }
+    }
+
+    // Update the index after two tiles showing icon have been removed from cellA and cellB.
+    // The grid and the run lengths must already show both cells as empty.
+    public void tilesRemoved(int icon, int cellA, int cellB, ConnectionRule rule) {
+        // Pairs that used either tile are gone
+        removeFromIcon(icon, cellA);
+        removeFromIcon(icon, cellB);
+        moves.remove(PairSet.pair(cellA, cellB));
+        for (int i = 0; i < iconCount[icon]; i++) {
+            int other = cellsByIcon[icon][i];
+            moves.remove(PairSet.pair(cellA, other));
+            moves.remove(PairSet.pair(cellB, other));
+        }
+
+        int indexA = grid.indexOfCell(cellA);
+        int indexB = grid.indexOfCell(cellB);
+        if (rule == ConnectionRule.CLASSIC) {
+            // A new line must pass through a freed cell
+            scanFrom(indexA, nextGeneration());
+            addMovesAmongHits(true);
+            scanFrom(indexB, nextGeneration());
+            addMovesAmongHits(true);
+        } else {
+            // The freed cells joined empty regions; every tile on the border of the merged region can reach the others
+            int stamp = nextRegionGeneration();
+            floodRegion(indexA, stamp);
+            addMovesAmongHits(false);
+            if (region[indexB] != stamp) {
+                floodRegion(indexB, stamp);
+                addMovesAmongHits(false);
+            }
+        }
+    }
+
+    // Tiles reachable from a tile with at most two bends get paired with it if they show the same icon
+    private void addMovesFrom(int cell) {
+        int index = grid.indexOfCell(cell);
+        int icon = grid.get(index);
+        scanFrom(index, nextGeneration());
+        for (int i = 0; i < hitCount; i++) {
+            int other = hits[i];
+            if (grid.get(other) == icon) {
+                moves.add(PairSet.pair(cell, grid.cellOf(other)));
+            }
+        }
+    }
+
+    // Collect into hits[] every tile that a line with at most two bends from cell reaches,
+    // noting in reach[] the direction the line left cell in and how many bends it took
+    private void scanFrom(int cell, int stamp) {
+        hitCount = 0;
+        mark[cell] = stamp; // Never report the starting cell itself
+        reach[cell] = 0xFF;
+        for (int dir = 0; dir < 4; dir++) {
+            walk(cell, dir, dir, 0, stamp);
+        }
+    }
+
+    // Walk from cell in dir across empty cells, recording the tile that stops the walk,
+    // and branch off sideways from every empty cell while bends are left.
+    // A walk that leaves the ring outwards starts on a wall, whose run is zero, so it ends at once.
+    private void walk(int cell, int dir, int firstDir, int bends, int stamp) {
+        int step = grid.offset(dir);
+        int start = cell + step;
+        int run = twoTurn.emptyRunAt(start, dir); // Empty cells ahead, found in O(1)
+        int hit = start + run * step;
+        if (grid.isTile(hit)) {
+            recordHit(hit, firstDir, bends, stamp); // The first tile in this direction
+        }
+        if (bends < 2) {
+            int side = dir < 2 ? 2 : 0; // Perpendicular directions are side and side + 1
+            for (int k = 0, next = start; k < run; k++, next += step) {
+                walk(next, side, firstDir, bends + 1, stamp);
+                walk(next, side + 1, firstDir, bends + 1, stamp);
+            }
+        }
+    }
+
+    private void recordHit(int cell, int firstDir, int bends, int stamp) {
+        if (mark[cell] != stamp) {
+            mark[cell] = stamp;
+            reach[cell] = 0xFF; // Not reached in any direction yet
+            hits = ensureCapacity(hits, hitCount + 1);
+            hits[hitCount++] = cell;
+        }
+        int shift = firstDir * 2;
+        if (((reach[cell] >>> shift) & 3) > bends) {
+            reach[cell] = (reach[cell] & ~(3 << shift)) | (bends << shift);
+        }
+    }
+
+    // Two tiles seen from the same freed cell connect through it if the two lines join into one with at most two bends:
+    // leaving in opposite directions the freed cell is not a bend, leaving at a right angle it is one
+    private static boolean joinsThrough(int reachA, int reachB) {
+        for (int dirA = 0; dirA < 4; dirA++) {
+            int bendsA = (reachA >>> (dirA * 2)) & 3;
+            if (bendsA == 3) {
+                continue;
+            }
+            for (int dirB = 0; dirB < 4; dirB++) {
+                int bendsB = (reachB >>> (dirB * 2)) & 3;
+                if (bendsB == 3 || dirB == dirA) {
+                    continue;
+                }
+                int turn = (dirB == (dirA ^ 1)) ? 0 : 1; // Directions 0/1 and 2/3 are opposite
+                if (bendsA + bendsB + turn <= 2) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Free rule: neighbouring tiles with the same icon always connect
+    private void addAdjacentMoves() {
+        int down = grid.offset(0);
+        for (int x = 0; x < gridSize; x++) {
+            for (int y = 0; y < gridSize; y++) {
+                int index = grid.index(x, y);
+                int icon = grid.get(index);
+                if (icon == BoardStore.EMPTY) {
+                    continue;
+                }
+                // Ring and wall cells never hold an icon, so the neighbors need no bounds check
+                if (grid.get(index + down) == icon) {
+                    moves.add(PairSet.pair(x * gridSize + y, (x + 1) * gridSize + y));
+                }
+                if (grid.get(index + 1) == icon) {
+                    moves.add(PairSet.pair(x * gridSize + y, x * gridSize + y + 1));
+                }
+            }
+        }
+    }
+
+    // Free rule: flood the empty region containing start, collecting the tiles on its border into hits[]
+    private void floodRegion(int start, int stamp) {
+        int hitStamp = nextGeneration();
+        hitCount = 0;
+        int head = 0;
+        int tail = 0;
+        flood[tail++] = start;
+        region[start] = stamp;
+        while (head != tail) {
+            int cell = flood[head++];
+            for (int dir = 0; dir < 4; dir++) {
+                int next = cell + grid.offset(dir);
+                if (grid.isTile(next)) {
+                    recordHit(next, dir, 0, hitStamp); // A tile on the border
+                } else if (grid.isEmpty(next) && region[next] != stamp) {
+                    region[next] = stamp;
+                    flood[tail++] = next;
+                }
+            }
+        }
+    }
+
+    // Pair up every two tiles in hits[] that show the same icon; with throughScan, only if their lines join
+    private void addMovesAmongHits(boolean throughScan) {
+        grouped = ensureCapacity(grouped, hitCount);
+        for (int i = 0; i < hitCount; i++) {
+            int cell = hits[i];
+            grouped[i] = ((long) grid.get(cell) << 32) | cell;
+        }
+        Arrays.sort(grouped, 0, hitCount); // Tiles with the same icon end up next to each other
+        for (int i = 0; i < hitCount; i++) {
+            int icon = (int) (grouped[i] >>> 32);
+            int a = (int) grouped[i];
+            for (int j = i + 1; j < hitCount && (int) (grouped[j] >>> 32) == icon; j++) {
+                int b = (int) grouped[j];
+                if (!throughScan || joinsThrough(reach[a], reach[b])) {
+                    moves.add(PairSet.pair(grid.cellOf(a), grid.cellOf(b)));
+                }
+            }
+        }
+    }
+
+    private void addToIcon(int icon, int cell) {
+        if (cellsByIcon[icon] == null) {
+            cellsByIcon[icon] = new int[16];
+        }
+        cellsByIcon[icon] = ensureCapacity(cellsByIcon[icon], iconCount[icon] + 1);
+        slotOf[cell] = iconCount[icon];
+        cellsByIcon[icon][iconCount[icon]++] = cell;
+    }
+
+    // Swap the last cell of the icon list into the removed cell's slot
+    private void removeFromIcon(int icon, int cell) {
+        int slot = slotOf[cell];
+        if (slot < 0) {
+            return;
+        }
+        int last = cellsByIcon[icon][--iconCount[icon]];
+        cellsByIcon[icon][slot] = last;
+        slotOf[last] = slot;
+        slotOf[cell] = -1;
+    }
+
+    private int nextGeneration() {
+        generation++;
+        if (generation == 0) {
+            Arrays.fill(mark, 0); // The stamp wrapped around, so old marks must be cleared once
+            generation = 1;
+        }
+        return generation;
+    }
+
+    private int nextRegionGeneration() {
+        regionGeneration++;
+        if (regionGeneration == 0) {
+            Arrays.fill(region, 0);
+            regionGeneration = 1;
+        }
+        return regionGeneration;
+    }
+
+    private static int[] ensureCapacity(int[] array, int needed) {
+        return needed <= array.length ? array : Arrays.copyOf(array, Math.max(needed, array.length * 2));
+    }
+
+    private static long[] ensureCapacity(long[] array, int needed) {
+        return needed <= array.length ? array : Arrays.copyOf(array, Math.max(needed, array.length * 2));
+    }
+}
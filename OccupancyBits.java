@@ -0,0 +1,69 @@
+import java.util.Arrays;
+
+// Bitboard of the cells that still hold a tile: bit x * gridSize + y of a long[] is set while (x, y) is occupied.
+// A counter of the set bits makes the "board is empty" check O(1), and walking the tiles that are left
+// skips 64 empty cells at a time.
+public class OccupancyBits {
+    private int gridSize;
+    private long[] words = new long[0];
+    private int count; // Number of set bits, i.e. tiles left
+
+    // Rebuild the bits from the board
+    public void reset(BoardStore board, int gridSize) {
+        this.gridSize = gridSize;
+        int wordCount = (gridSize * gridSize + 63) >>> 6;
+        if (words.length < wordCount) {
+            words = new long[wordCount];
+        }
+        Arrays.fill(words, 0, wordCount, 0L);
+        for (int x = 0; x < gridSize; x++) {
+            for (int y = 0; y < gridSize; y++) {
+                if (board.get(x, y) != BoardStore.EMPTY) {
+                    int cell = x * gridSize + y;
+                    words[cell >>> 6] |= 1L << cell;
+                }
+            }
+        }
+        count = 0;
+        for (int w = 0; w < wordCount; w++) {
+            count += Long.bitCount(words[w]);
+        }
+    }
+
+    // The tile on (x, y) has been removed
+    public void clear(int x, int y) {
+        int cell = x * gridSize + y;
+        long bit = 1L << cell; // Shifts use the low 6 bits, i.e. the position inside the word
+        if ((words[cell >>> 6] & bit) != 0) {
+            words[cell >>> 6] &= ~bit;
+            count--;
+        }
+    }
+
+    // True once every tile has been removed, in O(1)
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    // Number of tiles left
+    public int count() {
+        return count;
+    }
+
+    // First occupied cell (x * gridSize + y) at or after cell, or -1 if there is none; walks whole words at a time
+    public int nextOccupied(int cell) {
+        int cells = gridSize * gridSize;
+        if (cell >= cells) {
+            return -1;
+        }
+        int w = cell >>> 6;
+        long word = words[w] & (-1L << cell); // Drop the bits before cell
+        while (word == 0) {
+            if (++w >= (cells + 63) >>> 6) {
+                return -1;
+            }
+            word = words[w];
+        }
+        return (w << 6) + Long.numberOfTrailingZeros(word);
+    }
+}
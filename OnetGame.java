@@ -2,41 +2,72 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
 import java.util.*;
-import java.util.Timer;
 
-public class OnetGame extends JFrame implements ActionListener {
+public class OnetGame extends JFrame implements BoardView.CellListener {
     int gridSize = 4; // Initial grid size (4x4)
-    int[][] board = new int[gridSize][gridSize]; // The game board
-    JButton[][] buttons = new JButton[gridSize][gridSize]; // Buttons for each cell in the grid
+    BoardEngine engine; // Headless game logic holding the board
+    private static final long SOLVER_NODES = 4_000; // Solver positions allowed for proving a new board or shuffle can be cleared
+    private static final int NUM_PAIRS = 18; // Number of image pairs
     private ImageIcon[] icons; // Array to hold the icons for the game
+    private LevelPipeline levels; // Builds the next level in the background
+    private final int cellSize = 100; // Preferred size of each cell
     private int score = 0; // Player's score
     private int level = 1; // Current level
     private JLabel scoreLabel; // Label to display the score
     private JLabel levelLabel; // Label to display the level
     private JLabel timerLabel; // Label to display the remaining time
     private Point firstClick = null; // To store the first clicked point
-    private Timer timer; // Timer for the game
+    private final GameScheduler scheduler = new GameScheduler(); // Runs every timed task of the game on the event thread
+    private GameScheduler.Task countdown; // Ticks the level timer once a second
+    private GameScheduler.Task clearLineTask; // Pending removal of the connection line
+    private final MatchValidator matchValidator = new MatchValidator(); // Checks picked pairs off the event thread
+    private boolean shuffling; // Set while a shuffle is worked out off the event thread; the board is left alone until it is in
+    private MetricsHud metricsHud; // Optional readout of the engine timings
     private int timeRemaining = 60; // Time remaining for the level (60 seconds)
-    private JPanel gamePanel; // Panel for the game grid
-    private Point matchStart, matchEnd; // Start and end points for drawing lines
+    private BoardView boardView; // Paints the game grid and maps clicks to cells
+    private final long seed; // Game seed, saved so a resumed game deals the same later levels
+    private final SnapshotFile snapshots = new SnapshotFile(SnapshotFile.defaultPath(), NUM_PAIRS); // Saved after every move and every second
 
     public OnetGame() {
-        // Measure initialization time
-        long startTime = System.nanoTime();
+        this(BoardBackend.ARRAY);
+    }
+
+    public OnetGame(BoardBackend backend) {
+        this(backend, new SplittableRandom().nextLong());
+    }
+
+    // Every level follows from seed, so a game can be replayed by passing the seed it printed
+    public OnetGame(BoardBackend backend, long seed) {
+        this(backend, seed, null);
+    }
+
+    // Resume a saved game: its board, score, level and time are put back as they were
+    public OnetGame(BoardBackend backend, SnapshotFile.Snapshot saved) {
+        this(backend, saved.gameSeed, saved);
+    }
+
+    private OnetGame(BoardBackend backend, long seed, SnapshotFile.Snapshot saved) {
+        this.seed = seed;
         initializeIcons(); // Load icons
-        initializeBoard(); // Setup the game board
+        IconCache iconCache = new IconCache(icons); // Icons scaled once per cell size
+        System.out.println("Game seed: " + seed);
+        Metrics.registerMBean(); // Engine timings can be read and switched on from JConsole
+        levels = new LevelPipeline(backend, iconCache, SOLVER_NODES, seed); // Game logic on the chosen board backend, one engine per level
+        boardView = new BoardView(iconCache, cellSize);
+        if (saved != null) {
+            restore(saved); // Pick up the saved game where it stopped
+        } else {
+            initializeBoard(); // Setup the game board
+        }
         initializeUI(); // Initialize user interface
         startTimer(); // Start the timer for the game
-        long endTime = System.nanoTime();
-        System.out.println("Total initialization time: " + (endTime - startTime) + " ns");
     }
 
     // Load icons for the game
     private void initializeIcons() {
-        int numPairs = 18; // Number of image pairs
-        icons = new ImageIcon[numPairs]; // Create an array for icons
+        icons = new ImageIcon[NUM_PAIRS]; // Create an array for icons
 
-        for (int i = 0; i < numPairs; i++) {
+        for (int i = 0; i < NUM_PAIRS; i++) {
             // Load images using getResource from the images folder within src
             String imagePath = "/images/" + (i + 1) + ".png";
             icons[i] = new ImageIcon(Objects.requireNonNull(getClass().getResource(imagePath)));
@@ -50,35 +81,48 @@ public class OnetGame extends JFrame implements ActionListener {
 
     // Initialize the game board with icons
     private void initializeBoard() {
-        // Measure initialization time
-        long startTime = System.nanoTime();
-
-        board = new int[gridSize][gridSize]; // Initialize the board array
-        buttons = new JButton[gridSize][gridSize]; // Initialize the buttons array
-        ArrayList<Integer> positions = new ArrayList<>(); // List to hold icon positions
+        GameEvents.LevelTransition event = new GameEvents.LevelTransition();
+        event.begin();
+        LevelPipeline.Level next = levels.take(gridSize, boardView.cellSizeFor(gridSize)); // Usually already built while the last level was played
+        engine = next.engine;
+        System.out.println("Level " + level + " seed: " + next.seed); // BoardEngine.initializeBoard or constructBoard(gridSize, seed) deals this board again
+        if (next.status != BoardSolver.Status.SOLVED) {
+            System.out.println("Level " + level + " could not be proven solvable"); // It still starts with a move
+        }
+        boardView.setLevel(next); // Show the new board
+        levels.prepare(nextGridSize(), boardView.cellSizeFor(nextGridSize())); // Start building the level after this one
+        event.level = level;
+        event.gridSize = gridSize;
+        event.seed = next.seed;
+        event.commit(); // Recorded only while Flight Recorder is running
+    }
 
-        int numPairs = (gridSize * gridSize) / 2; // Number of pairs in the grid
+    // Show the saved board as it was; only the level after it is built, as usual
+    private void restore(SnapshotFile.Snapshot saved) {
+        level = saved.level;
+        score = saved.score;
+        timeRemaining = saved.timeRemaining;
+        gridSize = saved.gridSize;
+        levels.skipSeeds(saved.seedsTaken); // The later levels follow from the game seed as if the game had not stopped
+        LevelPipeline.Level current = levels.restore(gridSize, boardView.cellSizeFor(gridSize), saved.board, saved.levelSeed);
+        engine = current.engine;
+        System.out.println("Resumed level " + level + ", seed: " + current.seed);
+        boardView.setLevel(current);
+        levels.prepare(nextGridSize(), boardView.cellSizeFor(nextGridSize())); // Start building the level after this one
+    }
 
-        for (int i = 0; i < numPairs; i++) {
-            positions.add(i % icons.length); // Add the same icon twice to make pairs
-            positions.add(i % icons.length); // Add twice for pairs
-        }
+    // Save the game; a snapshot only stores into the mapped file, so it can be taken after every change
+    private void saveSnapshot() {
+        snapshots.write(level, score, timeRemaining, seed, levels.getSeedsTaken(), engine);
+    }
 
-        // Measure sorting time (shuffling positions)
-        long sortingStartTime = System.nanoTime();
-        Collections.shuffle(positions); // Shuffle the positions to randomize
-        long sortingEndTime = System.nanoTime();
-        System.out.println("Sorting (shuffling) time: " + (sortingEndTime - sortingStartTime) + " ns");
-
-        for (int i = 0; i < gridSize; i++) {
-            for (int j = 0; j < gridSize; j++) {
-                if (!positions.isEmpty()) {
-                    board[i][j] = positions.remove(0); // Assign a random icon to each cell
-                }
-            }
+    // Grid size of the level after the current one
+    private int nextGridSize() {
+        int next = gridSize + 2; // Increase the grid size by 2 for the next level
+        if (next % 2 != 0) {
+            next++; // Ensure the grid size is even
         }
-        long endTime = System.nanoTime();
-        System.out.println("Board initialization time: " + (endTime - startTime) + " ns");
+        return next;
     }
 
     // Initialize the user interface
@@ -87,36 +131,9 @@ public class OnetGame extends JFrame implements ActionListener {
         setSize(800, 600); // Set the size of the window
         setLayout(new BorderLayout()); // Set the layout to BorderLayout
 
-        gamePanel = new JPanel(new GridLayout(gridSize, gridSize)) {
-            @Override
-            protected void paintComponent(Graphics g) {
-                super.paintComponent(g);
-                // Draw a connection line if there is a match
-                if (matchStart != null && matchEnd != null) {
-                    Graphics2D g2d = (Graphics2D) g;
-                    g2d.setColor(Color.RED);
-                    g2d.setStroke(new BasicStroke(2));
-                    drawConnectionLine(g2d, matchStart, matchEnd);
-                }
-            }
-        };
-
-        int buttonSize = 100; // Size of each button
-        for (int i = 0; i < gridSize; i++) {
-            for (int j = 0; j < gridSize; j++) {
-                buttons[i][j] = new JButton();
-                buttons[i][j].setPreferredSize(new Dimension(buttonSize, buttonSize)); // Set button size
-                buttons[i][j].setMargin(new Insets(0, 0, 0, 0)); // Remove margin to fit the image inside the box
-                buttons[i][j].setContentAreaFilled(false); // Remove content area
-                buttons[i][j].setBorderPainted(true);
-
-                // Get icon and adjust its size before setting to the button
-                ImageIcon icon = icons[board[i][j]];
-                buttons[i][j].setIcon(scaleImageIcon(icon, buttonSize, buttonSize)); // Set image to JButton with adjusted size
-                buttons[i][j].addActionListener(this); // Add action listener to button
-                gamePanel.add(buttons[i][j]); // Add button to the game panel
-            }
-        }
+        boardView.setCellListener(this); // Clicks on the board come back to cellClicked
+
+        metricsHud = new MetricsHud(scheduler);
 
         JPanel infoPanel = new JPanel();
         infoPanel.setLayout(new BoxLayout(infoPanel, BoxLayout.Y_AXIS)); // Set layout to BoxLayout
@@ -138,6 +155,12 @@ public class OnetGame extends JFrame implements ActionListener {
         shuffleButton.setAlignmentX(Component.CENTER_ALIGNMENT); // Center align
         shuffleButton.addActionListener(e -> shuffleBoard()); // Add action listener to shuffle button
 
+        // Button for showing a pair that can be matched
+        JButton hintButton = new JButton("Hint");
+        hintButton.setFont(new Font("Serif", Font.BOLD, 24)); // Set font
+        hintButton.setAlignmentX(Component.CENTER_ALIGNMENT); // Center align
+        hintButton.addActionListener(e -> showHint()); // Add action listener to hint button
+
         // Add components to the info panel
         infoPanel.add(Box.createVerticalGlue());
         infoPanel.add(scoreLabel);
@@ -145,128 +168,117 @@ public class OnetGame extends JFrame implements ActionListener {
         infoPanel.add(timerLabel);
         infoPanel.add(Box.createVerticalStrut(20));
         infoPanel.add(shuffleButton);
+        infoPanel.add(Box.createVerticalStrut(10));
+        infoPanel.add(hintButton);
+        infoPanel.add(Box.createVerticalStrut(10));
+        infoPanel.add(metricsHud.getToggle()); // Engine timings, off unless asked for
+        infoPanel.add(metricsHud.getDisplay());
         infoPanel.add(Box.createVerticalGlue());
 
         add(infoPanel, BorderLayout.EAST); // Add info panel to the right
-        add(gamePanel, BorderLayout.CENTER); // Add game panel to the center
+        add(boardView, BorderLayout.CENTER); // Add the board to the center
 
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                saveSnapshot(); // Closing the window keeps the game for the next start
+            }
+        });
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE); // Set default close operation
         setVisible(true); // Make the window visible
     }
 
     @Override
-    public void actionPerformed(ActionEvent e) {
-        // Handle button clicks
-        JButton clickedButton = (JButton) e.getSource();
-        Point clickedPoint = getButtonPosition(clickedButton);
+    public void cellClicked(Point clickedPoint) {
+        if (shuffling) {
+            return; // The tiles are about to move
+        }
+        if (engine.getIcon(clickedPoint.x, clickedPoint.y) == BoardStore.EMPTY) {
+            return; // Nothing to pick on an empty cell
+        }
 
-        if (clickedPoint == null) {
-            return; // Return if clicked point is null
+        if (matchValidator.isPending()) {
+            matchValidator.cancel(); // A newer click wins over the pair still being checked
+            boardView.clearSelection();
         }
 
         if (firstClick == null) {
             firstClick = clickedPoint; // Set first click
+            boardView.select(clickedPoint); // Frame the tile right away
         } else {
-            // Check if the two clicks form a matching pair and are connectable
-            if (isMatch(firstClick, clickedPoint) && isConnectable(firstClick, clickedPoint)) {
-                matchStart = firstClick;
-                matchEnd = clickedPoint;
-                gamePanel.repaint(); // Redraw to display the line
-                removeImages(firstClick, clickedPoint); // Remove matched images
-                score += 10; // Increment score
-                scoreLabel.setText("Score: " + score); // Update score label
-                if (isBoardEmpty()) {
-                    nextLevel(); // Proceed to the next level if the board is empty
-                }
-                // Task to clear the line after 0.5 seconds
-                TimerTask clearLineTask = new TimerTask() {
-                    public void run() {
-                        matchStart = null;
-                        matchEnd = null;
-                        gamePanel.repaint(); // Redraw to remove the line
-                    }
-                };
-                new Timer().schedule(clearLineTask, 500); // Remove line after 0.5 seconds
-            }
+            Point first = firstClick;
             firstClick = null; // Reset first click
+            boardView.select(clickedPoint);
+            // Check if the two clicks form a matching pair and are connectable, off the event thread
+            matchValidator.submit(engine, first, clickedPoint, match -> matchChecked(first, clickedPoint, match));
         }
     }
 
-
-    private Point getButtonPosition(JButton button) {
-        // Iterate through each row of the grid
-        for (int i = 0; i < gridSize; i++) {
-            // Iterate through each column of the grid
-            for (int j = 0; j < gridSize; j++) {
-                // Check if the current button in the grid matches the specified button
-                if (buttons[i][j] == button) {
-                    // Return the position as a Point object
-                    return new Point(i, j);
-                }
+    // The pair picked last has been checked; remove it if it matched
+    private void matchChecked(Point p1, Point p2, MatchResult match) {
+        boardView.clearSelection();
+        if (match != null) {
+            boardView.showMatch(match); // Display the line
+            removeImages(p1, p2); // Remove matched images
+            score += 10; // Increment score
+            scoreLabel.setText("Score: " + score); // Update score label
+            if (engine.isBoardEmpty()) {
+                nextLevel(); // Proceed to the next level if the board is empty
+            } else if (!engine.hasAvailableMoves()) {
+                shuffleBoard(); // No pair can be matched any more, so reshuffle on the level pipeline's thread
             }
+            clearLineLater(); // Remove the line after 0.5 seconds
+            saveSnapshot();
         }
-        // Return null if the button is not found in the grid
-        return null;
     }
 
-    private boolean isMatch(Point p1, Point p2) {
-        long startTime = System.nanoTime(); // Start timing the match check
 
-        // Check if the points are the same; if so, they can't be a match
-        if (p1.equals(p2)) {
-            return false;
+    // Stop checking the pair picked last, so this thread can change the board
+    private void dropPendingCheck() {
+        if (matchValidator.isPending()) {
+            boardView.clearSelection();
         }
-
-        // Check if the images at the two points match
-        boolean result = board[p1.x][p1.y] == board[p2.x][p2.y];
-
-        long endTime = System.nanoTime(); // End timing the match check
-        System.out.println("Match checking (searching) time: " + (endTime - startTime) + " ns");
-
-        return result;
+        matchValidator.cancelAndWait(); // The worker must be done reading the board first
     }
 
-    private void removeImages(Point p1, Point p2) {
-        if (p1 != null && p2 != null) {
-            long startTime = System.nanoTime(); // Start timing the removal
-
-            // Make the buttons at the specified points invisible
-            buttons[p1.x][p1.y].setVisible(false);
-            buttons[p2.x][p2.y].setVisible(false);
-
-            // Mark the board positions as empty
-            board[p1.x][p1.y] = -1;
-            board[p2.x][p2.y] = -1;
-
-            long endTime = System.nanoTime(); // End timing the removal
-            System.out.println("Time to remove images: " + (endTime - startTime) + " ns");
+    // Task to clear the line after 0.5 seconds
+    private void clearLineLater() {
+        if (clearLineTask != null) {
+            clearLineTask.cancel(); // A newer line is shown, so it gets the full 0.5 seconds
         }
+        clearLineTask = scheduler.schedule(() -> boardView.showMatch(null), 500); // Remove line after 0.5 seconds
     }
 
-    private boolean isBoardEmpty() {
-        long startTime = System.nanoTime(); // Start timing the empty board check
-
-        // Iterate through all buttons to check their visibility
-        for (int i = 0; i < gridSize; i++) {
-            for (int j = 0; j < gridSize; j++) {
-                if (buttons[i][j].isVisible()) {
-                    return false; // If any button is visible, the board is not empty
-                }
-            }
+    // Draw the line between a pair that can be matched right now
+    private void showHint() {
+        if (shuffling) {
+            return; // The shuffle will leave a move, and the hint would point at tiles about to move
         }
+        if (!engine.hasAvailableMoves()) {
+            shuffleBoard(); // Nothing can be matched, so reshuffle instead
+            return;
+        }
+        dropPendingCheck(); // The hint searches the board, which the worker must not be doing at the same time
+        Point[] hint = engine.findHint();
+        if (hint != null) {
+            boardView.showMatch(engine.findMatch(hint[0], hint[1])); // Display the line
+            clearLineLater();
+        }
+    }
 
-        long endTime = System.nanoTime(); // End timing the empty board check
-        System.out.println("Empty board check time: " + (endTime - startTime) + " ns");
-
-        return true; // All buttons are invisible, the board is empty
+    private void removeImages(Point p1, Point p2) {
+        if (p1 != null && p2 != null) {
+            engine.removeImages(p1, p2); // Mark the board positions as empty
+            boardView.repaintCell(p1); // Only the two emptied cells need painting again
+            boardView.repaintCell(p2);
+            snapshots.cellRemoved(p1.x, p1.y); // The next save only writes these two cells
+            snapshots.cellRemoved(p2.x, p2.y);
+        }
     }
 
 
     private void nextLevel() {
-        gridSize += 2; // Increase the grid size by 2 for the next level
-        if (gridSize % 2 != 0) {
-            gridSize++; // Ensure the grid size is even
-        }
+        gridSize = nextGridSize();
         level++; // Increment the level
         levelLabel.setText("Level: " + level); // Update the level label
 
@@ -276,7 +288,7 @@ public class OnetGame extends JFrame implements ActionListener {
         timeRemaining = baseTime + (level - 1) * additionalTime;
 
         // Show a congratulatory dialog
-        timer.cancel(); // Stop the current timer
+        countdown.cancel(); // Stop the current timer
         int result = JOptionPane.showOptionDialog(this,
                 "Congratulations, you have completed this level!",
                 "Level Completed",
@@ -286,229 +298,79 @@ public class OnetGame extends JFrame implements ActionListener {
                 new String[]{"Proceed to the Next Level"},
                 "Proceed to the Next Level");
 
-        // Exit the game if the dialog is closed
+        // Exit the game if the dialog is closed, saving it at the start of the next level as closing the window does
         if (result == JOptionPane.CLOSED_OPTION) {
+            initializeBoard();
+            saveSnapshot();
             System.exit(0);
         }
 
-        // Reinitialize the board for the next level
+        // Swap in the board for the next level
         initializeBoard();
-        gamePanel.removeAll();
-        gamePanel.setLayout(new GridLayout(gridSize, gridSize)); // Set layout again
-
-        // Reinitialize buttons array with new grid size
-        buttons = new JButton[gridSize][gridSize];
-        int buttonSize = 100; // JButton size
-        for (int i = 0; i < gridSize; i++) {
-            for (int j = 0; j < gridSize; j++) {
-                buttons[i][j] = new JButton();
-                buttons[i][j].setPreferredSize(new Dimension(buttonSize, buttonSize)); // Set JButton size
-                buttons[i][j].setMargin(new Insets(0, 0, 0, 0)); // Remove margin to fit the image inside the box
-                buttons[i][j].setContentAreaFilled(false); // Remove content area
-                buttons[i][j].setBorderPainted(true);
-
-                // Get icon and adjust its size before setting to the button
-                ImageIcon icon = icons[board[i][j]];
-                buttons[i][j].setIcon(scaleImageIcon(icon, buttonSize, buttonSize)); // Set image to JButton with adjusted size
-                buttons[i][j].addActionListener(this);
-                gamePanel.add(buttons[i][j]);
-            }
-        }
-
-        gamePanel.revalidate();
-        gamePanel.repaint();
         startTimer(); // Start the timer for the new level
     }
 
 
     private void startTimer() {
         timerLabel.setText("Time: " + timeRemaining); // Update the timer label with the remaining time
-        timer = new Timer(); // Initialize a new timer
-        timer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                timeRemaining--; // Decrease the remaining time by 1 second
-                timerLabel.setText("Time: " + timeRemaining); // Update the timer label
-
-                // Check if the time has run out
-                if (timeRemaining <= 0) {
-                    timer.cancel(); // Stop the timer
-                    // Show a game over message and exit the game
-                    JOptionPane.showMessageDialog(OnetGame.this, "Time's up! Game over.", "Game Over", JOptionPane.INFORMATION_MESSAGE);
-                    System.exit(0);
-                }
-            }
-        }, 1000, 1000); // Schedule the task to run every second
-    }
-
-
-    // Logic for shuffling the game board
-    private void shuffleBoard() {
-        long startTime = System.nanoTime(); // Start timing the board shuffling
-
-        ArrayList<Integer> visibleIcons = new ArrayList<>();
-
-        // Collect all visible icons
-        for (int i = 0; i < gridSize; i++) {
-            for (int j = 0; j < gridSize; j++) {
-                if (board[i][j] != -1) {
-                    visibleIcons.add(board[i][j]);
-                }
-            }
-        }
-
-        // Shuffle positions of visible icons
-        Collections.shuffle(visibleIcons);
-
-        // Assign shuffled icons back to the game board
-        for (int i = 0; i < gridSize; i++) {
-            for (int j = 0; j < gridSize; j++) {
-                if (board[i][j] != -1) {
-                    board[i][j] = visibleIcons.remove(0);
-                }
-            }
-        }
-
-        // Update button view with the shuffled icons
-        updateButtonIcons();
-
-        long endTime = System.nanoTime(); // End timing the board shuffling
-        System.out.println("Board shuffling time: " + (endTime - startTime) + " ns");
+        countdown = scheduler.scheduleAtFixedRate(this::tick, 1000, 1000); // Schedule the tick to run every second
     }
 
-    // Update button icons with correct size
-    private void updateButtonIcons() {
-        int buttonSize = 100; // JButton size
-        for (int i = 0; i < gridSize; i++) {
-            for (int j = 0; j < gridSize; j++) {
-                if (board[i][j] != -1) {
-                    ImageIcon icon = icons[board[i][j]];
-                    buttons[i][j].setIcon(scaleImageIcon(icon, buttonSize, buttonSize)); // Set image to JButton with adjusted size
-                    buttons[i][j].setVisible(true); // Make button visible
-                    buttons[i][j].setBorderPainted(true); // Enable border painting
-                } else {
-                    buttons[i][j].setVisible(false); // Make button invisible if no icon is assigned
-                }
-            }
+    // One second of the level timer, run on the event thread
+    private void tick() {
+        timeRemaining--; // Decrease the remaining time by 1 second
+        timerLabel.setText("Time: " + timeRemaining); // Update the timer label
+
+        // Check if the time has run out
+        if (timeRemaining <= 0) {
+            scheduler.cancelAll(); // Stop the timer and any pending effects
+            snapshots.clear(); // The game is over, so there is nothing to resume
+            // Show a game over message and exit the game
+            JOptionPane.showMessageDialog(OnetGame.this, "Time's up! Game over.", "Game Over", JOptionPane.INFORMATION_MESSAGE);
+            System.exit(0);
         }
+        saveSnapshot();
     }
 
-    // Additional function to adjust ImageIcon size with the button
-    private ImageIcon scaleImageIcon(ImageIcon icon, int width, int height) {
-        Image img = icon.getImage(); // Get the original image
-        Image scaledImage = img.getScaledInstance(width, height, Image.SCALE_SMOOTH); // Scale the image
-        return new ImageIcon(scaledImage); // Return the scaled image as an ImageIcon
-    }
-
-
-
-    private ArrayList<Point> findPath(Point start, Point end) {
-        long startTime = System.nanoTime(); // Start timing the path finding
-
-        int[] dx = {1, -1, 0, 0}; // Possible x-direction movements
-        int[] dy = {0, 0, 1, -1}; // Possible y-direction movements
-        int gridSize = board.length; // Get the size of the grid
-        boolean[][] visited = new boolean[gridSize][gridSize]; // Visited array to keep track of visited points
-        Point[][] prev = new Point[gridSize][gridSize]; // Array to store previous points for path reconstruction
-
-        Queue<Point> queue = new LinkedList<>(); // Queue for BFS
-        queue.add(start); // Add starting point to the queue
-        visited[start.x][start.y] = true; // Mark starting point as visited
-
-        // BFS loop
-        while (!queue.isEmpty()) {
-            Point current = queue.poll();
-            if (current.equals(end)) { // If the end point is reached
-                long endTime = System.nanoTime(); // End timing the path finding
-                System.out.println("Path finding time: " + (endTime - startTime) + " ns");
-                return reconstructPath(prev, end); // Reconstruct and return the path
-            }
 
-            // Explore all possible movements
-            for (int i = 0; i < 4; i++) {
-                int nx = current.x + dx[i];
-                int ny = current.y + dy[i];
-
-                // Ensure the new position is within the grid and not visited
-                if (nx >= 0 && nx < gridSize && ny >= 0 && ny < gridSize) {
-                    if (!visited[nx][ny] && (board[nx][ny] == -1 || (nx == end.x && ny == end.y))) {
-                        visited[nx][ny] = true; // Mark the new position as visited
-                        prev[nx][ny] = current; // Set the current point as the previous point for the new position
-                        queue.add(new Point(nx, ny)); // Add the new position to the queue
-                    }
-                }
-            }
+    // Logic for shuffling the game board
+    private void shuffleBoard() {
+        if (shuffling) {
+            return; // Already being shuffled
         }
-
-        long endTime = System.nanoTime(); // End timing the path finding
-        System.out.println("Path finding time: " + (endTime - startTime) + " ns");
-        return new ArrayList<>(); // Return an empty list if no path is found
+        dropPendingCheck();
+        shuffling = true;
+        // Shuffle the remaining tiles into a layout that can still be cleared; proving it may take a while on big boards
+        levels.shuffle(engine, this::shuffleDone);
     }
 
-
-    private void drawConnectionLine(Graphics2D g2d, Point p1, Point p2) {
-        // Find the path between the two points
-        ArrayList<Point> path = findPath(p1, p2);
-
-        // Iterate through each segment of the path
-        for (int i = 0; i < path.size() - 1; i++) {
-            // Ensure points are within the grid bounds
-            if (path.get(i).x >= 0 && path.get(i).x < gridSize &&
-                    path.get(i).y >= 0 && path.get(i).y < gridSize &&
-                    path.get(i + 1).x >= 0 && path.get(i + 1).x < gridSize &&
-                    path.get(i + 1).y >= 0 && path.get(i + 1).y < gridSize) {
-
-                // Get buttons at the current and next points in the path
-                JButton b1 = buttons[path.get(i).x][path.get(i).y];
-                JButton b2 = buttons[path.get(i + 1).x][path.get(i + 1).y];
-
-                // Get the bounds of the buttons
-                Rectangle r1 = b1.getBounds();
-                Rectangle r2 = b2.getBounds();
-
-                // Calculate the center points of the buttons
-                Point start = new Point(r1.x + r1.width / 2, r1.y + r1.height / 2);
-                Point end = new Point(r2.x + r2.width / 2, r2.y + r2.height / 2);
-
-                // Draw a line between the center points
-                g2d.drawLine(start.x, start.y, end.x, end.y);
-            }
+    // The shuffle has been worked out on the level pipeline's thread; show it
+    private void shuffleDone(BoardEngine shuffled, BoardSolver.Status status) {
+        shuffling = false;
+        engine.takeShuffle(shuffled);
+        if (status != BoardSolver.Status.SOLVED) {
+            System.out.println("Shuffle could not be proven solvable"); // Being stuck later still reshuffles
         }
+        boardView.repaint(); // Show the shuffled icons
+        saveSnapshot();
     }
 
-    // Logic to check if two points can be connected
-    private boolean isConnectable(Point p1, Point p2) {
-        long startTime = System.nanoTime();
-
-        // Check if there's a path between the points
-        boolean result = !findPath(p1, p2).isEmpty();
-
-        long endTime = System.nanoTime();
-
-        // Output the time taken to check connectivity
-        System.out.println("Connectivity checking time: " + (endTime - startTime) + " ns");
-
-        return result;
-    }
-
-
-    // Rebuild path from end point to start point
-    private ArrayList<Point> reconstructPath(Point[][] prev, Point end) {
-        ArrayList<Point> path = new ArrayList<>();
-
-        // Traverse from the end point back to the start point
-        for (Point at = end; at != null; at = prev[at.x][at.y]) {
-            path.add(at);
-        }
-
-        // Reverse the path to get it from start to end
-        Collections.reverse(path);
+    public static void main(String[] args) {
+        // Pick the board backend from the first argument, e.g. "array" or "hash_map"
+        BoardBackend backend = BoardBackend.fromName(args.length > 0 ? args[0] : null, BoardBackend.ARRAY);
 
-        return path;
-    }
+        // An optional second argument replays the levels of an earlier game from its seed, e.g. "array 42"
+        long seed = args.length > 1 ? Long.parseLong(args[1].trim()) : new SplittableRandom().nextLong();
+        // Without a seed, a game saved earlier is resumed if there is one
+        SnapshotFile.Snapshot saved = args.length > 1 ? null : new SnapshotFile(SnapshotFile.defaultPath(), NUM_PAIRS).read();
 
-    public static void main(String[] args) {
         // Launch the game in the Event Dispatch Thread
-        SwingUtilities.invokeLater(OnetGame::new);
+        SwingUtilities.invokeLater(() -> {
+            if (saved != null) {
+                new OnetGame(backend, saved);
+            } else {
+                new OnetGame(backend, seed);
+            }
+        });
     }
 }
\ No newline at end of file
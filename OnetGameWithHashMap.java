@@ -2,43 +2,72 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
 import java.util.*;
-import java.util.Timer;
 
-public class OnetGameWithHashMap extends JFrame implements ActionListener {
+public class OnetGameWithHashMap extends JFrame implements BoardView.CellListener {
     int gridSize = 4; // Grid size of the game board
-    HashMap<Point, Integer> board = new HashMap<>(); // HashMap to store the board state
-    HashMap<Point, JButton> buttons = new HashMap<>(); // HashMap to store buttons on the board
+    BoardEngine engine; // Headless game logic holding the board state
+    private static final long SOLVER_NODES = 4_000; // Solver positions allowed for proving a new board or shuffle can be cleared
+    private static final int NUM_PAIRS = 18; // Number of image pairs
 
     private ImageIcon[] icons; // Array to hold icons for the game
+    private LevelPipeline levels; // Builds the next level in the background
     private int score = 0; // Player's score
     private int level = 1; // Current game level
     private JLabel scoreLabel; // Label to display score
     private JLabel levelLabel; // Label to display level
     private JLabel timerLabel; // Label to display remaining time
     private Point firstClick = null; // Store the first clicked button
-    private Timer timer; // Timer for the game
+    private final GameScheduler scheduler = new GameScheduler(); // Runs every timed task of the game on the event thread
+    private GameScheduler.Task countdown; // Ticks the level timer once a second
+    private GameScheduler.Task clearLineTask; // Pending removal of the connection line
+    private final MatchValidator matchValidator = new MatchValidator(); // Checks picked pairs off the event thread
+    private boolean shuffling; // Set while a shuffle is worked out off the event thread; the board is left alone until it is in
+    private MetricsHud metricsHud; // Optional readout of the engine timings
     private int timeRemaining = 60; // Remaining time for the current level
-    private int buttonSize = 100; // Size of each button
-    private JPanel gamePanel; // Panel to hold the game grid
-    private Point matchStart, matchEnd; // Points to store matched buttons for drawing lines
+    private final int cellSize = 100; // Preferred size of each cell
+    private BoardView boardView; // Paints the game grid and maps clicks to cells
+    private final long seed; // Game seed, saved so a resumed game deals the same later levels
+    private final SnapshotFile snapshots = new SnapshotFile(SnapshotFile.defaultPath(), NUM_PAIRS); // Saved after every move and every second
 
     public OnetGameWithHashMap() {
-        long startTime = System.nanoTime(); // Start measuring initialization time
+        this(BoardBackend.HASH_MAP);
+    }
+
+    public OnetGameWithHashMap(BoardBackend backend) {
+        this(backend, new SplittableRandom().nextLong());
+    }
+
+    // Every level follows from seed, so a game can be replayed by passing the seed it printed
+    public OnetGameWithHashMap(BoardBackend backend, long seed) {
+        this(backend, seed, null);
+    }
 
-        buttons = new HashMap<>();
+    // Resume a saved game: its board, score, level and time are put back as they were
+    public OnetGameWithHashMap(BoardBackend backend, SnapshotFile.Snapshot saved) {
+        this(backend, saved.gameSeed, saved);
+    }
+
+    private OnetGameWithHashMap(BoardBackend backend, long seed, SnapshotFile.Snapshot saved) {
+        this.seed = seed;
         initializeIcons(); // Initialize icons for the game
-        initializeBoard(); // Set up the board
+        IconCache iconCache = new IconCache(icons); // Icons scaled once per cell size
+        System.out.println("Game seed: " + seed);
+        Metrics.registerMBean(); // Engine timings can be read and switched on from JConsole
+        levels = new LevelPipeline(backend, iconCache, SOLVER_NODES, seed); // Game logic on the chosen board backend, one engine per level
+        boardView = new BoardView(iconCache, cellSize);
+        if (saved != null) {
+            restore(saved); // Pick up the saved game where it stopped
+        } else {
+            initializeBoard(); // Set up the board
+        }
         initializeUI(); // Set up the UI
         startTimer(); // Start the game timer
-        long endTime = System.nanoTime(); // End measuring initialization time
-        System.out.println("Total initialization time: " + (endTime - startTime) + " nanoseconds");
     }
 
     private void initializeIcons() {
-        int numPairs = 18; // Number of pairs of icons
-        icons = new ImageIcon[numPairs]; // Initialize the icons array
+        icons = new ImageIcon[NUM_PAIRS]; // Initialize the icons array
 
-        for (int i = 0; i < numPairs; i++) {
+        for (int i = 0; i < NUM_PAIRS; i++) {
             String imagePath = "/images/" + (i + 1) + ".png"; // Path to the icon image
             icons[i] = new ImageIcon(Objects.requireNonNull(getClass().getResource(imagePath))); // Load the icon
 
@@ -49,34 +78,49 @@ public class OnetGameWithHashMap extends JFrame implements ActionListener {
     }
 
     private void initializeBoard() {
-        board.clear();
-        buttons.clear();
-        ArrayList<Integer> positions = new ArrayList<>();
-        int numPairs = (gridSize * gridSize) / 2; // Calculate the number of pairs needed
-
-        // Add pairs of icons to the positions list
-        for (int i = 0; i < numPairs; i++) {
-            positions.add(i % icons.length);
-            positions.add(i % icons.length); // Add each icon twice to create pairs
+        GameEvents.LevelTransition event = new GameEvents.LevelTransition();
+        event.begin();
+        LevelPipeline.Level next = levels.take(gridSize, boardView.cellSizeFor(gridSize)); // Usually already built while the last level was played
+        engine = next.engine;
+        System.out.println("Level " + level + " seed: " + next.seed); // BoardEngine.initializeBoard or constructBoard(gridSize, seed) deals this board again
+        if (next.status != BoardSolver.Status.SOLVED) {
+            System.out.println("Level " + level + " could not be proven solvable"); // It still starts with a move
         }
+        boardView.setLevel(next); // Show the new board
+        int nextSize = nextGridSize();
+        levels.prepare(nextSize, boardView.cellSizeFor(nextSize)); // Start building the level after this one
+        event.level = level;
+        event.gridSize = gridSize;
+        event.seed = next.seed;
+        event.commit(); // Recorded only while Flight Recorder is running
+    }
 
-        long sortingStartTime = System.nanoTime();
-        Collections.shuffle(positions); // Shuffle the positions to randomize
-        long sortingEndTime = System.nanoTime();
-        System.out.println("Sorting (shuffling) time: " + (sortingEndTime - sortingStartTime) + " ns");
-
-        long startTime = System.nanoTime(); // Start measuring board initialization time
-        for (int i = 0; i < gridSize; i++) {
-            for (int j = 0; j < gridSize; j++) {
-                if (!positions.isEmpty()) {
-                    board.put(new Point(i, j), positions.remove(0)); // Fill the board with icon pairs
-                } else {
-                    board.put(new Point(i, j), -1); // Fill remaining cells with -1 if any
-                }
-            }
+    // Show the saved board as it was; only the level after it is built, as usual
+    private void restore(SnapshotFile.Snapshot saved) {
+        level = saved.level;
+        score = saved.score;
+        timeRemaining = saved.timeRemaining;
+        gridSize = saved.gridSize;
+        levels.skipSeeds(saved.seedsTaken); // The later levels follow from the game seed as if the game had not stopped
+        LevelPipeline.Level current = levels.restore(gridSize, boardView.cellSizeFor(gridSize), saved.board, saved.levelSeed);
+        engine = current.engine;
+        System.out.println("Resumed level " + level + ", seed: " + current.seed);
+        boardView.setLevel(current);
+        levels.prepare(nextGridSize(), boardView.cellSizeFor(nextGridSize())); // Start building the level after this one
+    }
+
+    // Save the game; a snapshot only stores into the mapped file, so it can be taken after every change
+    private void saveSnapshot() {
+        snapshots.write(level, score, timeRemaining, seed, levels.getSeedsTaken(), engine);
+    }
+
+    // Grid size of the level after the current one
+    private int nextGridSize() {
+        int next = gridSize + 2; // Increase grid size by 2
+        if (next % 2 != 0) {
+            next++; // Ensure grid size is even
         }
-        long endTime = System.nanoTime(); // End measuring board initialization time
-        System.out.println("Time taken to initialize board: " + (endTime - startTime) + " ns");
+        return next;
     }
 
     private void initializeUI() {
@@ -84,38 +128,11 @@ public class OnetGameWithHashMap extends JFrame implements ActionListener {
         setSize(800, 600);
         setLayout(new BorderLayout());
 
-        // Panel to hold the game grid
-        gamePanel = new JPanel(new GridLayout(gridSize, gridSize)) {
-            @Override
-            protected void paintComponent(Graphics g) {
-                super.paintComponent(g);
-                if (matchStart != null && matchEnd != null) {
-                    Graphics2D g2d = (Graphics2D) g;
-                    g2d.setColor(Color.RED);
-                    g2d.setStroke(new BasicStroke(2));
-                    drawConnectionLine(g2d, matchStart, matchEnd); // Draw line between matched icons
-                }
-            }
-        };
-
-        // Initialize buttons for the game grid
-        for (int i = 0; i < gridSize; i++) {
-            for (int j = 0; j < gridSize; j++) {
-                JButton button = new JButton();
-                button.setPreferredSize(new Dimension(buttonSize, buttonSize)); // Set button size
-                button.setMargin(new Insets(0, 0, 0, 0));
-                button.setContentAreaFilled(false);
-                button.setBorderPainted(true);
-
-                ImageIcon icon = icons[board.get(new Point(i, j))]; // Get icon for the button
-                button.setIcon(scaleImageIcon(icon, buttonSize, buttonSize)); // Scale the icon to fit button
-                button.addActionListener(this);
-                buttons.put(new Point(i, j), button); // Store button in buttons map
-                gamePanel.add(button); // Add button to game panel
-            }
-        }
+        boardView.setCellListener(this); // Clicks on the board come back to cellClicked
 
         // Panel to hold score, level, and timer information
+        metricsHud = new MetricsHud(scheduler);
+
         JPanel infoPanel = new JPanel();
         infoPanel.setLayout(new BoxLayout(infoPanel, BoxLayout.Y_AXIS));
         infoPanel.setPreferredSize(new Dimension(200, getHeight()));
@@ -136,117 +153,129 @@ public class OnetGameWithHashMap extends JFrame implements ActionListener {
         shuffleButton.setAlignmentX(Component.CENTER_ALIGNMENT);
         shuffleButton.addActionListener(e -> shuffleBoard());
 
+        // Hint button to show a pair that can be matched
+        JButton hintButton = new JButton("Hint");
+        hintButton.setFont(new Font("Serif", Font.BOLD, 24));
+        hintButton.setAlignmentX(Component.CENTER_ALIGNMENT);
+        hintButton.addActionListener(e -> showHint());
+
         infoPanel.add(Box.createVerticalGlue());
         infoPanel.add(scoreLabel);
         infoPanel.add(levelLabel);
         infoPanel.add(timerLabel);
         infoPanel.add(Box.createVerticalStrut(20));
         infoPanel.add(shuffleButton);
+        infoPanel.add(Box.createVerticalStrut(10));
+        infoPanel.add(hintButton);
+        infoPanel.add(Box.createVerticalStrut(10));
+        infoPanel.add(metricsHud.getToggle()); // Engine timings, off unless asked for
+        infoPanel.add(metricsHud.getDisplay());
         infoPanel.add(Box.createVerticalGlue());
 
         add(infoPanel, BorderLayout.EAST); // Add info panel to the right
-        add(gamePanel, BorderLayout.CENTER); // Add game panel to the center
+        add(boardView, BorderLayout.CENTER); // Add the board to the center
 
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                saveSnapshot(); // Closing the window keeps the game for the next start
+            }
+        });
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setVisible(true); // Make the frame visible
     }
 
     @Override
-    public void actionPerformed(ActionEvent e) {
-        JButton clickedButton = (JButton) e.getSource(); // Get the clicked button
-        Point clickedPoint = getButtonPosition(clickedButton); // Get position of the clicked button
+    public void cellClicked(Point clickedPoint) {
+        if (shuffling) {
+            return; // The tiles are about to move
+        }
+        if (engine.getIcon(clickedPoint.x, clickedPoint.y) == BoardStore.EMPTY) {
+            return; // Empty cells cannot be picked
+        }
 
-        if (clickedPoint == null) {
-            return; // If clicked point is null, exit the method
+        if (matchValidator.isPending()) {
+            matchValidator.cancel(); // A newer click wins over the pair still being checked
+            boardView.clearSelection();
         }
 
         if (firstClick == null) {
             firstClick = clickedPoint; // Store the first clicked point
+            boardView.select(clickedPoint); // Frame the tile right away
         } else {
-            // If two buttons are clicked, check if they form a match
-            if (isMatch(firstClick, clickedPoint) && isConnectable(firstClick, clickedPoint)) {
-                matchStart = firstClick;
-                matchEnd = clickedPoint;
-                gamePanel.repaint(); // Repaint the game panel to draw the connection line
-                removeImages(firstClick, clickedPoint); // Remove matched icons from the board
-                score += 10; // Update score
-                scoreLabel.setText("Score: " + score);
-                if (isBoardEmpty()) {
-                    nextLevel(); // Move to the next level if the board is empty
-                }
-                // Timer task to clear the connection line after a short delay
-                TimerTask clearLineTask = new TimerTask() {
-                    public void run() {
-                        matchStart = null;
-                        matchEnd = null;
-                        gamePanel.repaint();
-                    }
-                };
-                new Timer().schedule(clearLineTask, 500); // Schedule the timer task
-            }
+            Point first = firstClick;
             firstClick = null; // Reset first click
+            boardView.select(clickedPoint);
+            // If two tiles are clicked, check if they form a match, off the event thread
+            matchValidator.submit(engine, first, clickedPoint, match -> matchChecked(first, clickedPoint, match));
         }
     }
 
-    // Method to get the position of a button in the grid
-    private Point getButtonPosition(JButton button) {
-        for (Point point : buttons.keySet()) {
-            if (buttons.get(point) == button) {
-                return point; // Return the point if the button matches
+    // The pair picked last has been checked; remove it if it matched
+    private void matchChecked(Point p1, Point p2, MatchResult match) {
+        boardView.clearSelection();
+        if (match != null) {
+            boardView.showMatch(match); // Draw the connection line
+            removeImages(p1, p2); // Remove matched icons from the board
+            score += 10; // Update score
+            scoreLabel.setText("Score: " + score);
+            if (engine.isBoardEmpty()) {
+                nextLevel(); // Move to the next level if the board is empty
+            } else if (!engine.hasAvailableMoves()) {
+                shuffleBoard(); // No pair can be matched any more, so reshuffle on the level pipeline's thread
             }
+            clearLineLater(); // Clear the connection line after a short delay
+            saveSnapshot();
         }
-        return null; // Return null if the button is not found
     }
 
-    // Method to check if two points on the board are a match
-    private boolean isMatch(Point p1, Point p2) {
-        long startTime = System.nanoTime(); // Start time for performance measurement
+    // Stop checking the pair picked last, so this thread can change the board
+    private void dropPendingCheck() {
+        if (matchValidator.isPending()) {
+            boardView.clearSelection();
+        }
+        matchValidator.cancelAndWait(); // The worker must be done reading the board first
+    }
 
-        boolean result = !p1.equals(p2) && board.get(p1).equals(board.get(p2)); // Check if points are different and have the same icon
+    // Method to clear the connection line after a short delay
+    private void clearLineLater() {
+        if (clearLineTask != null) {
+            clearLineTask.cancel(); // Restart the delay for the newer line
+        }
+        clearLineTask = scheduler.schedule(() -> boardView.showMatch(null), 500); // Schedule the line removal
+    }
 
-        long endTime = System.nanoTime(); // End time for performance measurement
-        System.out.println("Time taken to check match: " + (endTime - startTime) + " ns"); // Log the time taken
-        return result; // Return the result
+    // Method to draw the line between a pair that can be matched right now
+    private void showHint() {
+        if (shuffling) {
+            return; // The shuffle will leave a move, and the hint would point at tiles about to move
+        }
+        if (!engine.hasAvailableMoves()) {
+            shuffleBoard(); // Nothing can be matched, so reshuffle instead
+            return;
+        }
+        dropPendingCheck(); // The hint searches the board, which the worker must not be doing at the same time
+        Point[] hint = engine.findHint();
+        if (hint != null) {
+            boardView.showMatch(engine.findMatch(hint[0], hint[1])); // Draw the connection line
+            clearLineLater();
+        }
     }
 
     // Method to remove images from the board
     private void removeImages(Point p1, Point p2) {
-        long startTime = System.nanoTime(); // Start time for performance measurement
-
         if (p1 != null && p2 != null) {
-            buttons.get(p1).setVisible(false); // Hide the first button
-            buttons.get(p2).setVisible(false); // Hide the second button
-            board.put(p1, -1); // Mark the first point as empty
-            board.put(p2, -1); // Mark the second point as empty
-        }
-
-        long endTime = System.nanoTime(); // End time for performance measurement
-        System.out.println("Time taken to remove images: " + (endTime - startTime) + " ns"); // Log the time taken
-    }
-
-    // Method to check if the board is empty
-    private boolean isBoardEmpty() {
-        long startTime = System.nanoTime(); // Start time for performance measurement
-
-        boolean result = true; // Assume the board is empty
-        for (Point point : buttons.keySet()) {
-            if (buttons.get(point).isVisible()) { // If any button is still visible
-                result = false; // The board is not empty
-                break; // Exit the loop early
-            }
+            engine.removeImages(p1, p2); // Mark both points as empty
+            boardView.repaintCell(p1); // Repaint just the two emptied cells
+            boardView.repaintCell(p2);
+            snapshots.cellRemoved(p1.x, p1.y); // The next save only writes these two cells
+            snapshots.cellRemoved(p2.x, p2.y);
         }
-
-        long endTime = System.nanoTime(); // End time for performance measurement
-        System.out.println("Time taken to check if board is empty: " + (endTime - startTime) + " ns"); // Log the time taken
-        return result; // Return the result
     }
 
 
     private void nextLevel() {
-        gridSize += 2; // Increase the grid size by 2 for the next level
-        if (gridSize % 2 != 0) {
-            gridSize++; // Ensure the grid size is even
-        }
+        gridSize = nextGridSize();
         level++;
         levelLabel.setText("Level: " + level); // Update the level label
 
@@ -256,8 +285,8 @@ public class OnetGameWithHashMap extends JFrame implements ActionListener {
         timeRemaining = baseTime + (level - 1) * additionalTime; // Calculate new time remaining
 
         // Stop the previous timer
-        if (timer != null) {
-            timer.cancel(); // Cancel the existing timer
+        if (countdown != null) {
+            countdown.cancel(); // Cancel the existing timer
         }
 
         // Show dialog to notify the player of level completion
@@ -270,230 +299,74 @@ public class OnetGameWithHashMap extends JFrame implements ActionListener {
                 new String[]{"Proceed to the Next Level"},
                 "Proceed to the Next Level");
 
-        // Exit the game if the dialog is closed
+        // Exit the game if the dialog is closed, saving it at the start of the next level as closing the window does
         if (result == JOptionPane.CLOSED_OPTION) {
+            initializeBoard();
+            saveSnapshot();
             System.exit(0);
         }
 
-        long startTime = System.nanoTime(); // Start time for performance measurement
-
-        // Initialize new board
+        // Swap in the new board
         initializeBoard();
-        gamePanel.removeAll(); // Remove all components from the game panel
-        gamePanel.setLayout(new GridLayout(gridSize, gridSize)); // Set new grid layout
-
-        // Update button size based on new grid size
-        buttons = new HashMap<>();
-        buttonSize = gamePanel.getWidth() / gridSize; // Calculate new button size
-        for (int i = 0; i < gridSize; i++) {
-            for (int j = 0; j < gridSize; j++) {
-                JButton button = new JButton();
-                button.setPreferredSize(new Dimension(buttonSize, buttonSize)); // Set new button size
-                button.setMargin(new Insets(0, 0, 0, 0));
-                button.setContentAreaFilled(false);
-                button.setBorderPainted(true);
-
-                Integer iconIndex = board.get(new Point(i, j)); // Get icon index for the button
-                if (iconIndex != null && iconIndex != -1) {
-                    ImageIcon icon = icons[iconIndex];
-                    button.setIcon(scaleImageIcon(icon, buttonSize, buttonSize)); // Set icon for the button
-                } else {
-                    button.setVisible(false); // Hide the button if no icon
-                }
-
-                button.addActionListener(this); // Add action listener to the button
-                buttons.put(new Point(i, j), button); // Add button to buttons map
-                gamePanel.add(button); // Add button to game panel
-            }
-        }
-
-        gamePanel.revalidate(); // Revalidate the game panel to reflect changes
-        gamePanel.repaint(); // Repaint the game panel
         startTimer(); // Start the timer for the new level
-
-        long endTime = System.nanoTime(); // End time for performance measurement
-        System.out.println("Time taken to initialize board for new level: " + (endTime - startTime) + " ns"); // Log the time taken
     }
 
     // Method to start or restart the timer
     private void startTimer() {
-        if (timer != null) {
-            timer.cancel(); // Cancel existing timer if any
-        }
-
-        timer = new Timer(); // Create a new timer
-        TimerTask timerTask = new TimerTask() {
-            @Override
-            public void run() {
-                timeRemaining--; // Decrement the remaining time
-                timerLabel.setText("Time: " + timeRemaining); // Update the timer label
-                if (timeRemaining <= 0) { // Check if time is up
-                    timer.cancel(); // Cancel the timer
-                    JOptionPane.showMessageDialog(OnetGameWithHashMap.this, "Time's up! Game Over."); // Show game over message
-                    System.exit(0); // Exit the game
-                }
-            }
-        };
-        timer.scheduleAtFixedRate(timerTask, 1000, 1000); // Schedule the timer task to run every second
-    }
-
-    // Method to scale an image icon to the specified width and height
-    private ImageIcon scaleImageIcon(ImageIcon icon, int width, int height) {
-        Image img = icon.getImage(); // Get the image from the icon
-        Image scaledImage = img.getScaledInstance(width, height, Image.SCALE_SMOOTH); // Scale the image
-        return new ImageIcon(scaledImage); // Return the scaled icon
-    }
-
-    // Method to find a path between two points using BFS (Breadth-First Search)
-    private ArrayList<Point> findPath(Point start, Point end) {
-        long startTime = System.nanoTime(); // Start time for performance measurement
-
-        int[] dx = {1, -1, 0, 0}; // Directions for x-axis movement (right, left, down, up)
-        int[] dy = {0, 0, 1, -1}; // Directions for y-axis movement (right, left, down, up)
-        boolean[][] visited = new boolean[gridSize][gridSize]; // Array to keep track of visited points
-        Point[][] prev = new Point[gridSize][gridSize]; // Array to store previous points in the path
-
-        Queue<Point> queue = new LinkedList<>(); // Queue for BFS
-        queue.add(start); // Add the start point to the queue
-        visited[start.x][start.y] = true; // Mark the start point as visited
-
-        while (!queue.isEmpty()) {
-            Point current = queue.poll(); // Get the current point from the queue
-            if (current.equals(end)) { // If we reached the end point
-                long endTime = System.nanoTime(); // End time for performance measurement
-                System.out.println("Time taken to find path(searching alogrithm): " + (endTime - startTime) + " ns"); // Log the time taken
-                return reconstructPath(prev, end); // Reconstruct and return the path
-            }
-            for (int i = 0; i < 4; i++) { // Explore all four directions
-                int nx = current.x + dx[i];
-                int ny = current.y + dy[i];
-                if (nx >= 0 && nx < gridSize && ny >= 0 && ny < gridSize) { // Check if the next point is within the grid
-                    Integer nextValue = board.get(new Point(nx, ny)); // Get the value at the next point
-                    if (!visited[nx][ny] && (nextValue == null || nextValue == -1 || (nx == end.x && ny == end.y))) {
-                        visited[nx][ny] = true; // Mark the next point as visited
-                        prev[nx][ny] = current; // Set the previous point for the next point
-                        queue.add(new Point(nx, ny)); // Add the next point to the queue
-                    }
-                }
-            }
+        if (countdown != null) {
+            countdown.cancel(); // Cancel existing timer if any
         }
-
-        long endTime = System.nanoTime(); // End time for performance measurement
-        System.out.println("Time taken to find path(searching algorithm): " + (endTime - startTime) + " ns"); // Log the time taken
-        return new ArrayList<>(); // Return an empty path if no path is found
+        countdown = scheduler.scheduleAtFixedRate(this::tick, 1000, 1000); // Schedule the tick to run every second
     }
 
-    // Method to draw a connection line between two points
-    private void drawConnectionLine(Graphics2D g2d, Point p1, Point p2) {
-        ArrayList<Point> path = findPath(p1, p2); // Find the path between the two points
-        for (int i = 0; i < path.size() - 1; i++) { // Iterate through the points in the path
-            if (path.get(i).x >= 0 && path.get(i).x < gridSize &&
-                    path.get(i).y >= 0 && path.get(i).y < gridSize &&
-                    path.get(i + 1).x >= 0 && path.get(i + 1).x < gridSize &&
-                    path.get(i + 1).y >= 0 && path.get(i + 1).y < gridSize) {
-                JButton b1 = buttons.get(path.get(i)); // Get the first button
-                JButton b2 = buttons.get(path.get(i + 1)); // Get the second button
-                Rectangle r1 = b1.getBounds(); // Get the bounds of the first button
-                Rectangle r2 = b2.getBounds(); // Get the bounds of the second button
-                Point start = new Point(r1.x + r1.width / 2, r1.y + r1.height / 2); // Calculate the center of the first button
-                Point end = new Point(r2.x + r2.width / 2, r2.y + r2.height / 2); // Calculate the center of the second button
-                g2d.drawLine(start.x, start.y, end.x, end.y); // Draw a line between the centers of the two buttons
-            }
+    // One second of the level timer, run on the event thread
+    private void tick() {
+        timeRemaining--; // Decrement the remaining time
+        timerLabel.setText("Time: " + timeRemaining); // Update the timer label
+        if (timeRemaining <= 0) { // Check if time is up
+            scheduler.cancelAll(); // Stop the timer and any pending effects
+            snapshots.clear(); // The game is over, so there is nothing to resume
+            JOptionPane.showMessageDialog(OnetGameWithHashMap.this, "Time's up! Game Over."); // Show game over message
+            System.exit(0); // Exit the game
         }
-    }
-
-    // Method to check if two points are connectable
-    private boolean isConnectable(Point p1, Point p2) {
-        long startTime = System.nanoTime(); // Start time for performance measurement
-
-        boolean result = !findPath(p1, p2).isEmpty(); // Check if a path exists between the points
-
-        long endTime = System.nanoTime(); // End time for performance measurement
-        System.out.println("Time taken to check connectability (searching algorithm): " + (endTime - startTime) + " ns"); // Log the time taken
-
-        return result; // Return the result
-    }
-
-
-    // Method to reconstruct the path from the previous points array
-    private ArrayList<Point> reconstructPath(Point[][] prev, Point end) {
-        ArrayList<Point> path = new ArrayList<>(); // List to store the path
-        for (Point at = end; at != null; at = prev[at.x][at.y]) { // Trace back from the end point to the start point
-            path.add(at); // Add each point to the path
-        }
-        Collections.reverse(path); // Reverse the path to get the correct order
-        return path; // Return the reconstructed path
+        saveSnapshot();
     }
 
     // Method to shuffle the board
     private void shuffleBoard() {
-        long startTime = System.nanoTime(); // Start time for performance measurement
-
-        // Collect visible icons
-        long collectIconsStart = System.nanoTime();
-        ArrayList<Integer> visibleIcons = new ArrayList<>();
-        for (int i = 0; i < gridSize; i++) {
-            for (int j = 0; j < gridSize; j++) {
-                Point point = new Point(i, j);
-                Integer value = board.get(point);
-                if (value != null && value != -1) {
-                    visibleIcons.add(value); // Add visible icon to the list
-                }
-            }
+        if (shuffling) {
+            return; // Already being shuffled
         }
-        long collectIconsEnd = System.nanoTime();
-        System.out.println("Time taken to collect visible icons: " + (collectIconsEnd - collectIconsStart) + " ns");
-
-        // Shuffle icons
-        long shuffleStart = System.nanoTime();
-        Collections.shuffle(visibleIcons); // Shuffle the list of visible icons
-        long shuffleEnd = System.nanoTime();
-        System.out.println("Time taken to shuffle icons: " + (shuffleEnd - shuffleStart) + " ns");
-
-
-        // Place icons back on the board
-        long placeIconsStart = System.nanoTime();
-        Iterator<Integer> iterator = visibleIcons.iterator();
-        for (int i = 0; i < gridSize; i++) {
-            for (int j = 0; j < gridSize; j++) {
-                Point point = new Point(i, j);
-                if (board.get(point) != null && board.get(point) != -1 && iterator.hasNext()) {
-                    board.put(point, iterator.next()); // Place shuffled icon back on the board
-                }
-            }
-        }
-        long placeIconsEnd = System.nanoTime();
-        System.out.println("Time taken to place icons back on board: " + (placeIconsEnd - placeIconsStart) + " ns");
-
-        // Update buttons with new icons
-        long updateButtonsStart = System.nanoTime();
-        for (int i = 0; i < gridSize; i++) {
-            for (int j = 0; j < gridSize; j++) {
-                Point point = new Point(i, j);
-                JButton button = buttons.get(point);
-                if (button != null) {
-                    Integer value = board.get(point);
-                    if (value != null && value != -1) {
-                        ImageIcon icon = icons[value];
-                        button.setIcon(scaleImageIcon(icon, buttonSize, buttonSize)); // Ensure image scaling
-                        button.setVisible(true); // Make button visible
-                        button.setBorderPainted(true); // Ensure button border is painted
-                    } else {
-                        button.setVisible(false); // Hide button if no icon
-                    }
-                }
-            }
-        }
-        gamePanel.revalidate(); // Revalidate the game panel to apply changes
-        gamePanel.repaint(); // Repaint the game panel to reflect changes
-        long updateButtonsEnd = System.nanoTime();
-        System.out.println("Time taken to update buttons: " + (updateButtonsEnd - updateButtonsStart) + " ns");
+        dropPendingCheck();
+        shuffling = true;
+        // Shuffle the remaining tiles into a layout that can still be cleared; proving it may take a while on big boards
+        levels.shuffle(engine, this::shuffleDone);
+    }
 
-        long endTime = System.nanoTime(); // End time for performance measurement
-        System.out.println("Total time taken to shuffle board: " + (endTime - startTime) + " ns"); // Log total time taken
+    // The shuffle has been worked out on the level pipeline's thread; show it
+    private void shuffleDone(BoardEngine shuffled, BoardSolver.Status status) {
+        shuffling = false;
+        engine.takeShuffle(shuffled);
+        if (status != BoardSolver.Status.SOLVED) {
+            System.out.println("Shuffle could not be proven solvable"); // Being stuck later still reshuffles
+        }
+        boardView.repaint(); // Show the shuffled icons
+        saveSnapshot();
     }
 
     public static void main(String[] args) {
-        SwingUtilities.invokeLater(OnetGameWithHashMap::new); // Run the game on the Event Dispatch Thread
+        // Pick the board backend from the first argument, e.g. "hash_map" or "array"
+        BoardBackend backend = BoardBackend.fromName(args.length > 0 ? args[0] : null, BoardBackend.HASH_MAP);
+        // An optional second argument replays the levels of an earlier game from its seed, e.g. "hash_map 42"
+        long seed = args.length > 1 ? Long.parseLong(args[1].trim()) : new SplittableRandom().nextLong();
+        // Without a seed, a game saved earlier is resumed if there is one
+        SnapshotFile.Snapshot saved = args.length > 1 ? null : new SnapshotFile(SnapshotFile.defaultPath(), NUM_PAIRS).read();
+        SwingUtilities.invokeLater(() -> { // Run the game on the Event Dispatch Thread
+            if (saved != null) {
+                new OnetGameWithHashMap(backend, saved);
+            } else {
+                new OnetGameWithHashMap(backend, seed);
+            }
+        });
     }
 }
\ No newline at end of file
@@ -0,0 +1,105 @@
+// Flat, row-major copy of the board used by every search and scan.
+// The grid is surrounded by a ring of cells that are always empty, so lines and paths may run around
+// the outside of the board like in real Onet, and by a wall ring beyond that, so a step in any direction
+// from a grid or ring cell stays inside the array. Searches walk the array with the fixed offsets
+// of offset(dir) and never need a bounds check: they stop at walls like at tiles.
+// Grid cell (x, y) lives at index(x, y); the ring has x or y equal to -1 or gridSize.
+public class PaddedGrid {
+    public static final int WALL = -2; // Value of the cells past the empty ring
+
+    private int gridSize;
+    private int stride; // Cells per padded row: gridSize plus the ring and the wall on both sides
+    private int[] cells = new int[0]; // Icon ids, BoardStore.EMPTY or WALL
+    private final int[] offsets = new int[4]; // Index step for each direction (0: +x, 1: -x, 2: +y, 3: -y)
+
+    // Copy the board, framed by the empty ring and the wall
+    public void reset(BoardStore board, int gridSize) {
+        this.gridSize = gridSize;
+        stride = gridSize + 4;
+        int size = stride * stride;
+        if (cells.length < size) {
+            cells = new int[size];
+        }
+        offsets[0] = stride;
+        offsets[1] = -stride;
+        offsets[2] = 1;
+        offsets[3] = -1;
+
+        for (int x = -2; x < gridSize + 2; x++) {
+            for (int y = -2; y < gridSize + 2; y++) {
+                int value;
+                if (x == -2 || y == -2 || x == gridSize + 1 || y == gridSize + 1) {
+                    value = WALL;
+                } else if (x == -1 || y == -1 || x == gridSize || y == gridSize) {
+                    value = BoardStore.EMPTY; // The ring around the grid
+                } else {
+                    value = board.get(x, y);
+                }
+                cells[index(x, y)] = value;
+            }
+        }
+    }
+
+    public int getGridSize() {
+        return gridSize;
+    }
+
+    public int getStride() {
+        return stride;
+    }
+
+    // Number of cells in the padded array, walls included
+    public int size() {
+        return stride * stride;
+    }
+
+    // Array index of (x, y), for -2 <= x, y <= gridSize + 1
+    public int index(int x, int y) {
+        return (x + 2) * stride + y + 2;
+    }
+
+    public int xOf(int index) {
+        return index / stride - 2;
+    }
+
+    public int yOf(int index) {
+        return index % stride - 2;
+    }
+
+    // Index step that moves one cell in direction dir (0: +x, 1: -x, 2: +y, 3: -y)
+    public int offset(int dir) {
+        return offsets[dir];
+    }
+
+    public int get(int index) {
+        return cells[index];
+    }
+
+    public int get(int x, int y) {
+        return cells[index(x, y)];
+    }
+
+    // Change a grid cell, e.g. to BoardStore.EMPTY when its tile is removed
+    public void set(int x, int y, int value) {
+        cells[index(x, y)] = value;
+    }
+
+    public boolean isEmpty(int index) {
+        return cells[index] == BoardStore.EMPTY;
+    }
+
+    // True for a cell holding a tile, false for empty, ring and wall cells
+    public boolean isTile(int index) {
+        return cells[index] >= 0;
+    }
+
+    // Grid cell number x * gridSize + y of a tile's index, the packing used outside the searches
+    public int cellOf(int index) {
+        return xOf(index) * gridSize + yOf(index);
+    }
+
+    // Index of grid cell number x * gridSize + y
+    public int indexOfCell(int cell) {
+        return index(cell / gridSize, cell % gridSize);
+    }
+}
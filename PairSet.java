@@ -0,0 +1,145 @@
+import java.util.Arrays;
+
+// Set of unordered cell pairs with O(1) add, remove, contains and "any element".
+// Pairs live in a dense array (so any() is just the first slot) and an open-addressing
+// index maps each pair to its slot; removal swaps the last pair into the hole.
+public class PairSet {
+    private static final long FREE = -1L; // Key of an unused index slot
+
+    private long[] pairs = new long[16]; // Dense list of packed pairs
+    private int size;
+
+    private long[] keys; // Index: packed pair -> slot in pairs[]
+    private int[] slots;
+    private int mask;
+
+    public PairSet() {
+        allocate(32);
+    }
+
+    // Pack two cells into one key, smaller cell first
+    public static long pair(int a, int b) {
+        int lo = Math.min(a, b);
+        int hi = Math.max(a, b);
+        return ((long) lo << 32) | hi;
+    }
+
+    public static int first(long pair) {
+        return (int) (pair >>> 32);
+    }
+
+    public static int second(long pair) {
+        return (int) pair;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Some pair in the set, or -1 if it is empty
+    public long any() {
+        return size == 0 ? -1L : pairs[0];
+    }
+
+    // The index-th pair, 0 <= index < size(); the order changes as pairs are removed
+    public long get(int index) {
+        return pairs[index];
+    }
+
+    public void clear() {
+        size = 0;
+        Arrays.fill(keys, FREE);
+    }
+
+    public boolean contains(long pair) {
+        return find(pair) >= 0;
+    }
+
+    public void add(long pair) {
+        int slot = hash(pair) & mask;
+        while (keys[slot] != FREE) {
+            if (keys[slot] == pair) {
+                return; // Already present
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (size == pairs.length) {
+            pairs = Arrays.copyOf(pairs, size * 2);
+        }
+        keys[slot] = pair;
+        slots[slot] = size;
+        pairs[size++] = pair;
+        if (size > (mask + 1) / 2) {
+            rehash((mask + 1) * 2); // Keep the load factor at or below 1/2
+        }
+    }
+
+    public void remove(long pair) {
+        int slot = find(pair);
+        if (slot < 0) {
+            return;
+        }
+
+        // Move the last pair into the hole in the dense list
+        int hole = slots[slot];
+        long last = pairs[--size];
+        if (hole != size) {
+            pairs[hole] = last;
+            slots[find(last)] = hole;
+        }
+
+        // Backward-shift deletion, so the index never needs tombstones
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (keys[next] != FREE) {
+            int home = hash(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                slots[gap] = slots[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = FREE;
+    }
+
+    // Index slot of the pair, or -1
+    private int find(long pair) {
+        int slot = hash(pair) & mask;
+        while (keys[slot] != FREE) {
+            if (keys[slot] == pair) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void rehash(int capacity) {
+        allocate(capacity);
+        for (int i = 0; i < size; i++) {
+            int slot = hash(pairs[i]) & mask;
+            while (keys[slot] != FREE) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = pairs[i];
+            slots[slot] = i;
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        slots = new int[capacity];
+        Arrays.fill(keys, FREE);
+        mask = capacity - 1;
+    }
+
+    private static int hash(long pair) {
+        long h = pair * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,147 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Fewest-bends search for very large boards, with each layer of the search spread over a ForkJoinPool.
+// Works like BoardEngine's search: cells are labelled in layers by the number of straight segments needed
+// to reach them, and every cell of a layer casts a ray in each direction. Here the cells of a layer are split
+// between the pool's workers; a cell is claimed by setting its bit in an atomic bitset, so only the ray that
+// claims it writes its parent and queues it for the next layer. The pool is joined after every layer, and a plain
+// copy of the bitset taken then tells the workers which cells belong to earlier layers.
+// Small frontiers are walked on the calling thread, where forking would cost more than it saves.
+public class ParallelPathSearch {
+    private static final int CELLS_PER_TASK = 64; // Frontier cells one task walks before it stops splitting
+
+    private final PaddedGrid grid; // Board being searched, read-only during a search
+    private final ForkJoinPool pool;
+
+    private AtomicLongArray claimed = new AtomicLongArray(0); // One bit per cell: reached by this search
+    private long[] settled = new long[0]; // The claimed bits as they were when the current layer started
+    private int[] frontier = new int[0]; // Cells of the layer being expanded
+    private int[] nextFrontier = new int[0]; // Cells claimed for the next layer
+    private final AtomicInteger nextSize = new AtomicInteger(); // Cells in nextFrontier
+
+    // Set by a search
+    private int[] parent; // Corner each claimed cell was reached from
+    private int end;
+    private volatile boolean found;
+    private int cellsVisited;
+
+    public ParallelPathSearch(PaddedGrid grid, ForkJoinPool pool) {
+        this.grid = grid;
+        this.pool = pool;
+    }
+
+    // Search from PaddedGrid index start to end, writing the corner each cell was reached from into parent.
+    // Returns true if the end was reached; the line is then end, parent[end], ... back to start.
+    public boolean search(int start, int end, int[] parent) {
+        ensureBuffers();
+        this.parent = parent;
+        this.end = end;
+        found = false;
+        int words = claimed.length();
+        for (int i = 0; i < words; i++) {
+            claimed.set(i, 0); // A few thousand words even on the largest boards
+        }
+
+        claim(start);
+        parent[start] = -1;
+        frontier[0] = start;
+        int size = 1;
+        cellsVisited = 1;
+        while (size > 0 && !found) {
+            for (int i = 0; i < words; i++) {
+                settled[i] = claimed.get(i); // Forking the tasks publishes the copy to them
+            }
+            nextSize.set(0);
+            if (size <= CELLS_PER_TASK) {
+                expand(0, size);
+            } else {
+                pool.invoke(new Expand(0, size));
+            }
+            size = nextSize.get();
+            cellsVisited += size;
+            int[] swap = frontier;
+            frontier = nextFrontier;
+            nextFrontier = swap;
+        }
+        return found;
+    }
+
+    // Cells claimed by the last search
+    public int getCellsVisited() {
+        return cellsVisited;
+    }
+
+    // Cast the rays of frontier cells [from, to)
+    private void expand(int from, int to) {
+        for (int f = from; f < to && !found; f++) {
+            int cell = frontier[f];
+            for (int i = 0; i < 4; i++) {
+                int step = grid.offset(i);
+                // The wall around the ring is never empty, so no bounds check is needed
+                for (int next = cell + step; next == end || grid.isEmpty(next); next += step) {
+                    if (claim(next)) {
+                        parent[next] = cell;
+                        if (next == end) {
+                            found = true; // Every ray of this layer has as few segments, so the line is as good as any
+                            return;
+                        }
+                        nextFrontier[nextSize.getAndIncrement()] = next;
+                    } else if ((settled[next >>> 6] & 1L << next) != 0) {
+                        break; // Claimed in an earlier layer, whose ray goes on from there
+                    }
+                    // Otherwise claimed in this layer, maybe by a ray across this one, so the ray goes on
+                }
+            }
+        }
+    }
+
+    // Set the cell's bit; true if this call set it
+    private boolean claim(int cell) {
+        int word = cell >>> 6;
+        long bit = 1L << cell;
+        long old = claimed.get(word);
+        while ((old & bit) == 0) {
+            if (claimed.compareAndSet(word, old, old | bit)) {
+                return true;
+            }
+            old = claimed.get(word);
+        }
+        return false;
+    }
+
+    private void ensureBuffers() {
+        int cells = grid.size();
+        if (frontier.length < cells) {
+            claimed = new AtomicLongArray((cells + 63) >>> 6);
+            settled = new long[(cells + 63) >>> 6];
+            frontier = new int[cells];
+            nextFrontier = new int[cells];
+        }
+    }
+
+    // Casts the rays of a range of the frontier, splitting it while it is large
+    private class Expand extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+        Expand(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > CELLS_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Expand(from, middle), new Expand(middle, to));
+                return;
+            }
+            expand(from, to);
+        }
+    }
+}
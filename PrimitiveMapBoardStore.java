@@ -0,0 +1,32 @@
+// Board storage backed by a primitive open-addressing map keyed by packed (x, y).
+// Like the HashMap backend it only holds the cells that have a tile,
+// but without boxed Point keys or Integer values.
+public class PrimitiveMapBoardStore implements BoardStore {
+    private int gridSize; // Grid size of the board
+    private final CellMap board = new CellMap(); // Packed cell -> icon id
+
+    @Override
+    public void clear(int gridSize) {
+        this.gridSize = gridSize;
+        board.clear(gridSize * gridSize);
+    }
+
+    @Override
+    public int get(int x, int y) {
+        return board.get(CellMap.key(x, y), EMPTY); // Missing cells count as empty
+    }
+
+    @Override
+    public void set(int x, int y, int value) {
+        if (value == EMPTY) {
+            board.remove(CellMap.key(x, y)); // Removed tiles leave the map
+        } else {
+            board.put(CellMap.key(x, y), value);
+        }
+    }
+
+    @Override
+    public int getGridSize() {
+        return gridSize;
+    }
+}
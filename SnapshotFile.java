@@ -0,0 +1,223 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+// Save and resume: the running game in a small versioned binary file, written through a memory-mapped buffer.
+// The file stays mapped while the game runs, and a save only stores what changed since the last one: the header
+// and the cells of the pairs removed meanwhile. The whole board is written only when the tiles were dealt or moved,
+// so the game can save after every move and every second even on the big boards of late levels.
+//
+// Layout, big-endian:
+//   int magic "ONET", int version,
+//   int level, int score, int timeRemaining, int gridSize,
+//   long game seed, long level seed, long level seeds taken,
+//   long board hash, int CRC32 of everything before it, 4 bytes padding,
+//   gridSize * gridSize bytes: icon + 1 per cell in row-major order, 0 for an empty cell (so up to 255 icons).
+// The board hash XORs a hash of every cell's position and byte, so changing a cell updates it in O(1).
+// A save cut short by a crash leaves a header CRC or board hash that does not match, and the file is ignored.
+// The file is never made shorter, as that fails on some systems while it is mapped; bytes after the board are ignored.
+public class SnapshotFile {
+    // A saved game
+    public static class Snapshot {
+        public final int level;
+        public final int score;
+        public final int timeRemaining;
+        public final int gridSize;
+        public final long gameSeed; // Seed of the whole game, which the later levels follow from
+        public final long levelSeed; // Seed the current board was dealt from
+        public final long seedsTaken; // Level seeds used so far, see LevelPipeline.getSeedsTaken()
+        public final int[] board; // Icon per cell, x * gridSize + y, or BoardStore.EMPTY
+
+        Snapshot(int level, int score, int timeRemaining, int gridSize, long gameSeed, long levelSeed, long seedsTaken, int[] board) {
+            this.level = level;
+            this.score = score;
+            this.timeRemaining = timeRemaining;
+            this.gridSize = gridSize;
+            this.gameSeed = gameSeed;
+            this.levelSeed = levelSeed;
+            this.seedsTaken = seedsTaken;
+            this.board = board;
+        }
+    }
+
+    private static final int MAGIC = 0x4F4E4554; // "ONET"
+    private static final int VERSION = 2;
+    private static final int HASH_AT = 48; // Offset of the board hash
+    private static final int CRC_AT = 56; // Offset of the header CRC, which covers everything before it
+    private static final int HEADER_BYTES = 64; // Everything before the board
+    private static final int MAX_GRID_SIZE = 4096; // Far beyond any level played; a bigger size in a file means it is damaged
+
+    private final Path path;
+    private final int numIcons; // A saved cell holding an icon outside 0 to numIcons - 1 makes the file unreadable
+    private FileChannel channel; // Kept open while the game runs
+    private MappedByteBuffer buffer; // Maps the start of the file, remapped when a bigger board needs more
+    private final CRC32 crc = new CRC32();
+
+    // What the mapped board holds
+    private BoardEngine savedEngine; // Engine whose board was written last, or null if the board must be written whole
+    private int savedLayout; // Its layout version then
+    private long boardHash; // Hash of the board bytes as written
+    private int[] removed = new int[16]; // Cells emptied since the last save, as CellMap keys
+    private int removedCount;
+
+    public SnapshotFile(Path path, int numIcons) {
+        this.path = path;
+        this.numIcons = numIcons;
+    }
+
+    // onet-snapshot.bin in the working directory, unless -Donet.snapshot names another file
+    public static Path defaultPath() {
+        return Paths.get(System.getProperty("onet.snapshot", "onet-snapshot.bin"));
+    }
+
+    // Note that the tile at (x, y) was removed, so the next save writes its cell
+    public void cellRemoved(int x, int y) {
+        if (removedCount == removed.length) {
+            removed = Arrays.copyOf(removed, removedCount * 2);
+        }
+        removed[removedCount++] = CellMap.key(x, y);
+    }
+
+    // Save the game with the board of engine. Failing to save is reported, but the game goes on.
+    public void write(int level, int score, int timeRemaining, long gameSeed, long seedsTaken, BoardEngine engine) {
+        int gridSize = engine.getGridSize();
+        try {
+            map(HEADER_BYTES + gridSize * gridSize);
+        } catch (IOException e) {
+            System.out.println("Failed to save the game: " + e.getMessage());
+            return;
+        }
+
+        // The board first and the header CRC last, so a save cut short never matches
+        if (engine != savedEngine || engine.getLayoutVersion() != savedLayout) {
+            writeBoard(engine.getIcons());
+            savedEngine = engine;
+            savedLayout = engine.getLayoutVersion();
+        } else {
+            for (int i = 0; i < removedCount; i++) {
+                int x = removed[i] >>> 16;
+                int y = removed[i] & 0xFFFF;
+                writeCell(x * gridSize + y, BoardStore.EMPTY);
+            }
+        }
+        removedCount = 0;
+
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, level);
+        buffer.putInt(12, score);
+        buffer.putInt(16, timeRemaining);
+        buffer.putInt(20, gridSize);
+        buffer.putLong(24, gameSeed);
+        buffer.putLong(32, engine.getSeed());
+        buffer.putLong(40, seedsTaken);
+        buffer.putLong(HASH_AT, boardHash);
+        buffer.putInt(CRC_AT, checksum(buffer, CRC_AT));
+    }
+
+    // Mark the saved game as finished, e.g. when the time ran out, so it is not resumed
+    public void clear() {
+        if (buffer != null) {
+            buffer.putInt(0, 0);
+        }
+    }
+
+    // The saved game, or null if there is none or the file is not a complete snapshot of this version.
+    // The file is read into memory rather than mapped, so no mapping outlives the call.
+    // A matching CRC and hash only show the save was not cut short, so the grid size and every icon are checked too:
+    // a board the game could not have dealt is turned down here rather than crash the game that resumes it.
+    public Snapshot read() {
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        ByteBuffer data;
+        try {
+            data = ByteBuffer.wrap(Files.readAllBytes(path));
+        } catch (IOException | OutOfMemoryError e) {
+            System.out.println("Failed to read the saved game: " + e.getMessage());
+            return null;
+        }
+
+        if (data.capacity() < HEADER_BYTES || data.getInt(0) != MAGIC || data.getInt(4) != VERSION
+                || data.getInt(CRC_AT) != checksum(data, CRC_AT)) {
+            return null;
+        }
+        int gridSize = data.getInt(20);
+        if (gridSize < 2 || gridSize > MAX_GRID_SIZE || gridSize % 2 != 0 // Boards are dealt in pairs
+                || (long) gridSize * gridSize + HEADER_BYTES > data.capacity()) {
+            return null;
+        }
+
+        int[] board = new int[gridSize * gridSize];
+        long hash = 0;
+        for (int cell = 0; cell < board.length; cell++) {
+            int value = data.get(HEADER_BYTES + cell) & 0xFF;
+            if (value > numIcons) {
+                return null; // No such icon
+            }
+            board[cell] = value - 1;
+            hash ^= cellHash(cell, value);
+        }
+        if (hash != data.getLong(HASH_AT)) {
+            return null; // Cut short while it was written
+        }
+        return new Snapshot(data.getInt(8), data.getInt(12), data.getInt(16), gridSize,
+                data.getLong(24), data.getLong(32), data.getLong(40), board);
+    }
+
+    // Write every cell and hash the board afresh
+    private void writeBoard(int[] icons) {
+        boardHash = 0;
+        for (int cell = 0; cell < icons.length; cell++) {
+            int value = icons[cell] + 1; // EMPTY (-1) becomes 0
+            buffer.put(HEADER_BYTES + cell, (byte) value);
+            boardHash ^= cellHash(cell, value);
+        }
+    }
+
+    // Write one cell, updating the board hash for its old and new byte
+    private void writeCell(int cell, int icon) {
+        int at = HEADER_BYTES + cell;
+        int value = icon + 1;
+        boardHash ^= cellHash(cell, buffer.get(at) & 0xFF) ^ cellHash(cell, value);
+        buffer.put(at, (byte) value);
+    }
+
+    // Map at least size bytes of the file, keeping the current mapping if it is big enough.
+    // The file grows when it has to, but is never truncated.
+    private void map(int size) throws IOException {
+        if (buffer != null && buffer.capacity() >= size) {
+            return;
+        }
+        if (channel == null) {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, channel.size()));
+        savedEngine = null; // The new mapping holds whatever board an older game left, so write it whole
+    }
+
+    // Hash of a cell holding value; 0 for an empty cell, so an empty board hashes to 0
+    private static long cellHash(int cell, int value) {
+        if (value == 0) {
+            return 0;
+        }
+        long z = ((long) cell << 8 | value) * 0x9E3779B97F4A7C15L; // SplitMix64 finalizer, as in BoardSolver
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // CRC32 of the first length bytes
+    private int checksum(ByteBuffer data, int length) {
+        crc.reset();
+        crc.update(data.duplicate().position(0).limit(length));
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,234 @@
+import java.awt.Point;
+import java.util.ArrayList;
+
+// Classic Onet connectivity: two tiles connect if a line with at most two bends joins them through empty cells.
+// Keeps, for every cell of the PaddedGrid, the length of the run of empty cells starting there in each direction,
+// so each straight segment is checked in O(1) and a whole query costs O(gridSize).
+// The runs cover the empty ring around the board, so lines may go around the outside; the wall beyond it
+// has runs of zero, which ends every update loop without a bounds check.
+public class TwoTurnConnector {
+    private final PaddedGrid grid; // Board the runs are built from
+    private int[] emptyRight = new int[0]; // Empty cells starting at (x, y) going towards larger y
+    private int[] emptyDown = new int[0]; // Empty cells starting at (x, y) going towards larger x
+    private int[] emptyLeft = new int[0]; // Empty cells starting at (x, y) going towards smaller y
+    private int[] emptyUp = new int[0]; // Empty cells starting at (x, y) going towards smaller x
+
+    // Corners of the last connection found by connect()
+    private int bends; // Number of bends, or -1 if there was no connection
+    private int bend1X, bend1Y, bend2X, bend2Y;
+    private int linesTried; // Candidate lines the last connect() checked, for the path search event
+
+    public TwoTurnConnector(PaddedGrid grid) {
+        this.grid = grid;
+    }
+
+    // Rebuild the run lengths from the grid
+    public void reset() {
+        int cells = grid.size();
+        int stride = grid.getStride();
+        if (emptyRight.length < cells) {
+            emptyRight = new int[cells];
+            emptyDown = new int[cells];
+            emptyLeft = new int[cells];
+            emptyUp = new int[cells];
+        }
+        // Every row and column starts and ends with a wall, so the neighbor read is always inside the array
+        for (int cell = cells - 1; cell >= 0; cell--) {
+            boolean empty = grid.isEmpty(cell);
+            emptyRight[cell] = empty ? 1 + emptyRight[cell + 1] : 0;
+            emptyDown[cell] = empty ? 1 + emptyDown[cell + stride] : 0;
+        }
+        for (int cell = 0; cell < cells; cell++) {
+            boolean empty = emptyRight[cell] > 0;
+            emptyLeft[cell] = empty ? 1 + emptyLeft[cell - 1] : 0;
+            emptyUp[cell] = empty ? 1 + emptyUp[cell - stride] : 0;
+        }
+    }
+
+    // Update the run lengths after the tile at (x, y) has been removed
+    public void cellEmptied(int x, int y) {
+        int cell = grid.index(x, y);
+        int stride = grid.getStride();
+
+        // Runs in this row that end at (x, y) now continue through it
+        emptyRight[cell] = 1 + emptyRight[cell + 1];
+        for (int k = cell - 1; emptyRight[k] > 0; k--) {
+            emptyRight[k] = emptyRight[k + 1] + 1;
+        }
+        emptyLeft[cell] = 1 + emptyLeft[cell - 1];
+        for (int k = cell + 1; emptyLeft[k] > 0; k++) {
+            emptyLeft[k] = emptyLeft[k - 1] + 1;
+        }
+
+        // Same for the column
+        emptyDown[cell] = 1 + emptyDown[cell + stride];
+        for (int k = cell - stride; emptyDown[k] > 0; k -= stride) {
+            emptyDown[k] = emptyDown[k + stride] + 1;
+        }
+        emptyUp[cell] = 1 + emptyUp[cell - stride];
+        for (int k = cell + stride; emptyUp[k] > 0; k += stride) {
+            emptyUp[k] = emptyUp[k - stride] + 1;
+        }
+    }
+
+    // Update the run lengths after a tile has been put back at (x, y), e.g. when a search undoes a move
+    public void cellFilled(int x, int y) {
+        int cell = grid.index(x, y);
+        int stride = grid.getStride();
+        emptyRight[cell] = 0;
+        emptyDown[cell] = 0;
+        emptyLeft[cell] = 0;
+        emptyUp[cell] = 0;
+
+        // Runs that went through (x, y) now stop before it
+        for (int k = cell - 1; emptyRight[k] > 0; k--) {
+            emptyRight[k] = emptyRight[k + 1] + 1;
+        }
+        for (int k = cell + 1; emptyLeft[k] > 0; k++) {
+            emptyLeft[k] = emptyLeft[k - 1] + 1;
+        }
+        for (int k = cell - stride; emptyDown[k] > 0; k -= stride) {
+            emptyDown[k] = emptyDown[k + stride] + 1;
+        }
+        for (int k = cell + stride; emptyUp[k] > 0; k += stride) {
+            emptyUp[k] = emptyUp[k - stride] + 1;
+        }
+    }
+
+    // Number of bends of the last connection found by connect(), or -1 if there was none
+    public int getBends() {
+        return bends;
+    }
+
+    // Number of empty cells starting at (x, y) and going in direction dir
+    // (0: larger x, 1: smaller x, 2: larger y, 3: smaller y). Zero on a tile or a wall.
+    public int emptyRun(int x, int y, int dir) {
+        return emptyRunAt(grid.index(x, y), dir);
+    }
+
+    // Same as emptyRun() for a PaddedGrid index
+    public int emptyRunAt(int cell, int dir) {
+        switch (dir) {
+            case 0:
+                return emptyDown[cell];
+            case 1:
+                return emptyUp[cell];
+            case 2:
+                return emptyRight[cell];
+            default:
+                return emptyLeft[cell];
+        }
+    }
+
+    // Number of candidate lines the last connect() checked: the straight line, the two one-bend corners
+    // and every column and row scanned for two bends, each checked in O(1)
+    public int getLinesTried() {
+        return linesTried;
+    }
+
+    // Check whether (x1, y1) and (x2, y2) can be joined with at most two bends.
+    // The bends of the shortest such line are kept for bendPath().
+    public boolean connect(int x1, int y1, int x2, int y2) {
+        bends = -1;
+        linesTried = 3; // Straight and the two one-bend corners, at most
+        if (x1 == x2 && y1 == y2) {
+            return false;
+        }
+
+        // No bend: straight line in a row or a column
+        if ((x1 == x2 && rowClear(x1, y1, y2)) || (y1 == y2 && columnClear(y1, x1, x2))) {
+            bends = 0;
+            return true;
+        }
+
+        // One bend: through corner (x1, y2) or (x2, y1)
+        if (isEmpty(x1, y2) && rowClear(x1, y1, y2) && columnClear(y2, x1, x2)) {
+            setBends(1, x1, y2, 0, 0);
+            return true;
+        }
+        if (isEmpty(x2, y1) && columnClear(y1, x1, x2) && rowClear(x2, y1, y2)) {
+            setBends(1, x2, y1, 0, 0);
+            return true;
+        }
+
+        // Two bends: leave along the row to column c, or along the column to row r, and take the shortest
+        // Only columns inside the empty runs beside both tiles can be reached, so the scans stay within them;
+        // the runs reach into the ring, so rows and columns -1 and gridSize take lines around the board
+        int bestLength = Integer.MAX_VALUE;
+        int cFrom = Math.max(y1 - emptyRun(x1, y1 - 1, 3), y2 - emptyRun(x2, y2 - 1, 3));
+        int cTo = Math.min(y1 + emptyRun(x1, y1 + 1, 2), y2 + emptyRun(x2, y2 + 1, 2));
+        linesTried += Math.max(cTo - cFrom + 1, 0);
+        for (int c = cFrom; c <= cTo; c++) {
+            if (c == y1 || c == y2) {
+                continue;
+            }
+            if (columnClear(c, x1, x2)) {
+                int length = Math.abs(c - y1) + Math.abs(x2 - x1) + Math.abs(y2 - c);
+                if (length < bestLength) {
+                    bestLength = length;
+                    setBends(2, x1, c, x2, c);
+                }
+            }
+        }
+        int rFrom = Math.max(x1 - emptyRun(x1 - 1, y1, 1), x2 - emptyRun(x2 - 1, y2, 1));
+        int rTo = Math.min(x1 + emptyRun(x1 + 1, y1, 0), x2 + emptyRun(x2 + 1, y2, 0));
+        linesTried += Math.max(rTo - rFrom + 1, 0);
+        for (int r = rFrom; r <= rTo; r++) {
+            if (r == x1 || r == x2) {
+                continue;
+            }
+            if (rowClear(r, y1, y2)) {
+                int length = Math.abs(r - x1) + Math.abs(y2 - y1) + Math.abs(x2 - r);
+                if (length < bestLength) {
+                    bestLength = length;
+                    setBends(2, r, y1, r, y2);
+                }
+            }
+        }
+        return bends >= 0;
+    }
+
+    // Points of the last connection: start, bends, end (empty if there was none)
+    public ArrayList<Point> bendPath(int x1, int y1, int x2, int y2) {
+        ArrayList<Point> path = new ArrayList<>();
+        if (bends < 0) {
+            return path;
+        }
+        path.add(new Point(x1, y1));
+        if (bends >= 1) {
+            path.add(new Point(bend1X, bend1Y));
+        }
+        if (bends == 2) {
+            path.add(new Point(bend2X, bend2Y));
+        }
+        path.add(new Point(x2, y2));
+        return path;
+    }
+
+    private void setBends(int count, int ax, int ay, int bx, int by) {
+        bends = count;
+        bend1X = ax;
+        bend1Y = ay;
+        bend2X = bx;
+        bend2Y = by;
+    }
+
+    // True for an empty grid cell and for the ring around the grid
+    public boolean isEmpty(int x, int y) {
+        return emptyRight[grid.index(x, y)] > 0;
+    }
+
+    // All cells strictly between columns a and b in row x are empty
+    private boolean rowClear(int x, int a, int b) {
+        int lo = Math.min(a, b) + 1;
+        int gap = Math.max(a, b) - lo;
+        return gap <= 0 || emptyRight[grid.index(x, lo)] >= gap;
+    }
+
+    // All cells strictly between rows a and b in column y are empty
+    private boolean columnClear(int y, int a, int b) {
+        int lo = Math.min(a, b) + 1;
+        int gap = Math.max(a, b) - lo;
+        return gap <= 0 || emptyDown[grid.index(lo, y)] >= gap;
+    }
+}
@@ -0,0 +1,134 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+import java.util.concurrent.TimeUnit;
+
+// JMH benchmarks for every BoardEngine operation across grid sizes, board backends and fill ratios.
+// Every combination runs in its own forked JVM, so one backend's JIT profile never skews another's,
+// and JMH times whole batches of calls, so even nanosecond operations are not drowned out by reading the clock.
+// Throughput is reported in ops/us, and the sampled mode adds latency percentiles; for operations of a few
+// nanoseconds those are bounded by the timer, so read their throughput instead.
+// initializeBoard and generateSolvableBoard deal a full board whatever the fill.
+//
+// Build and run from the benchmark folder:
+//   mvn package
+//   java -jar target/benchmarks.jar BoardBenchmark.findPath -p size=16,64 -p backend=ARRAY,HASH_MAP -p fill=1.0
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+    static final long SEED = 42; // Same seed, same boards in every run
+    static final int REMOVALS = 4096; // Pairs removeImages takes off the boards per measured invocation
+
+    @Param({"4", "8", "16", "32", "64", "128", "256", "512"})
+    int size;
+
+    @Param({"ARRAY", "HASH_MAP", "PRIMITIVE_MAP"})
+    String backend;
+
+    @Param({"1.0", "0.5", "0.1"})
+    double fill; // Share of the tiles left on the board
+
+    @Param({"CLASSIC"})
+    String rule;
+
+    private BoardOperations board;
+
+    @Setup(Level.Trial)
+    public void prepare() {
+        board = BoardOperations.create();
+        board.prepare(backend, rule, size, fill, SEED);
+    }
+
+    @Benchmark
+    public int initializeBoard() {
+        return board.initializeBoard();
+    }
+
+    @Benchmark
+    public boolean isMatch() {
+        return board.isMatch();
+    }
+
+    @Benchmark
+    public int findPath() {
+        return board.findPath();
+    }
+
+    @Benchmark
+    public int findConnection() {
+        return board.findConnection();
+    }
+
+    @Benchmark
+    public boolean isConnectable() {
+        return board.isConnectable();
+    }
+
+    @Benchmark
+    public boolean isBoardEmpty() {
+        return board.isBoardEmpty();
+    }
+
+    @Benchmark
+    public int shuffleBoard() {
+        return board.shuffleBoard();
+    }
+
+    @Benchmark
+    public int generateSolvableBoard() {
+        return board.generateSolvableBoard();
+    }
+
+    // Boards with at least REMOVALS pairs between them, dealt again before every measured invocation
+    @State(Scope.Thread)
+    public static class Removals {
+        BoardOperations[] boards;
+
+        @Setup(Level.Invocation)
+        public void deal(BenchmarkParams params) {
+            int size = Integer.parseInt(params.getParam("size"));
+            double fill = Double.parseDouble(params.getParam("fill"));
+            int pairsPerBoard = Math.max((int) (size * size / 2 * fill) - 1, 1); // Fewest pairs prepare() leaves
+            boards = new BoardOperations[(REMOVALS + pairsPerBoard - 1) / pairsPerBoard];
+            for (int i = 0; i < boards.length; i++) {
+                boards[i] = BoardOperations.create();
+                boards[i].prepare(params.getParam("backend"), params.getParam("rule"), size, fill, SEED + i);
+            }
+        }
+    }
+
+    // Removing pairs changes the board, so each invocation takes REMOVALS pairs off freshly dealt boards
+    // and is timed as one shot; the score is per pair
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OperationsPerInvocation(REMOVALS)
+    @Warmup(iterations = 10)
+    @Measurement(iterations = 20)
+    public int removeImages(Removals removals) {
+        int removed = 0;
+        for (BoardOperations board : removals.boards) {
+            while (removed < REMOVALS && board.removeImages()) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+}
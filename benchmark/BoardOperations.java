@@ -0,0 +1,38 @@
+package benchmark;
+
+// The engine operations BoardBenchmark measures, each on a prepared board.
+// JMH does not run benchmarks in the default package, where all of the game lives, so the benchmarks reach
+// the engine through this interface, implemented by EngineOperations in the default package.
+// There is only one implementation, so the JIT inlines every call.
+public interface BoardOperations {
+    // Deal a size x size board on the named backend and rule from seed, and thin it down to fill (the share of tiles
+    // left) by removing matching pairs; the pairs left are the ones the queries and removeImages() use
+    void prepare(String backend, String rule, int size, double fill, long seed);
+
+    int initializeBoard(); // Deal a new board of the same size
+
+    boolean isMatch(); // The query methods each take the next prepared pair, cycling through them
+
+    int findPath();
+
+    int findConnection();
+
+    boolean isConnectable();
+
+    boolean removeImages(); // Remove the next prepared pair; false once every pair is gone
+
+    boolean isBoardEmpty();
+
+    int shuffleBoard();
+
+    int generateSolvableBoard(); // Deal a new board of the same size that is known to be clearable
+
+    // The implementation, loaded by name as it is in the default package
+    static BoardOperations create() {
+        try {
+            return (BoardOperations) Class.forName("EngineOperations").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("EngineOperations is not on the class path", e);
+        }
+    }
+}
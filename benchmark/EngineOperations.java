@@ -0,0 +1,123 @@
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+
+// BoardOperations on a BoardEngine, for the JMH benchmarks in BoardBenchmark
+public class EngineOperations implements benchmark.BoardOperations {
+    static final int NUM_ICONS = 18; // Same number of icons as the game
+    static final long SOLVER_NODES = 4_000; // Same solver budget as the game
+
+    private BoardEngine engine;
+    private int size;
+    private Random random;
+    private Point[][] pairs; // Matching pairs still on the board
+    private int nextPair;
+
+    @Override
+    public void prepare(String backend, String rule, int size, double fill, long seed) {
+        this.size = size;
+        random = new Random(seed); // Same seed, same board and pairs
+        engine = new BoardEngine(BoardBackend.fromName(backend, BoardBackend.ARRAY), NUM_ICONS);
+        engine.setSeed(random.nextLong());
+        engine.setRule(ConnectionRule.valueOf(rule.toUpperCase()));
+        engine.initializeBoard(size);
+
+        ArrayList<Point[]> allPairs = collectPairs();
+        // Always keep at least one pair so there is something to query
+        int pairsToRemove = Math.min((int) Math.round(allPairs.size() * (1.0 - fill)), allPairs.size() - 1);
+        for (int i = 0; i < pairsToRemove; i++) {
+            engine.removeImages(allPairs.get(i)[0], allPairs.get(i)[1]);
+        }
+        pairs = allPairs.subList(pairsToRemove, allPairs.size()).toArray(new Point[0][]);
+        nextPair = 0;
+    }
+
+    // Group the remaining tiles into matching pairs in random order
+    private ArrayList<Point[]> collectPairs() {
+        ArrayList<ArrayList<Point>> byIcon = new ArrayList<>();
+        for (int i = 0; i < NUM_ICONS; i++) {
+            byIcon.add(new ArrayList<>());
+        }
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                int icon = engine.getIcon(i, j);
+                if (icon != BoardStore.EMPTY) {
+                    byIcon.get(icon).add(new Point(i, j));
+                }
+            }
+        }
+        ArrayList<Point[]> result = new ArrayList<>();
+        for (ArrayList<Point> cells : byIcon) {
+            Collections.shuffle(cells, random);
+            for (int k = 0; k + 1 < cells.size(); k += 2) {
+                result.add(new Point[]{cells.get(k), cells.get(k + 1)});
+            }
+        }
+        Collections.shuffle(result, random);
+        return result;
+    }
+
+    // Next query pair, cycling through the prepared pairs
+    private Point[] nextPair() {
+        Point[] pair = pairs[nextPair];
+        nextPair = nextPair + 1 == pairs.length ? 0 : nextPair + 1;
+        return pair;
+    }
+
+    @Override
+    public int initializeBoard() {
+        engine.initializeBoard(size);
+        return engine.getIcon(0, 0);
+    }
+
+    @Override
+    public boolean isMatch() {
+        Point[] pair = nextPair();
+        return engine.isMatch(pair[0], pair[1]);
+    }
+
+    @Override
+    public int findPath() {
+        Point[] pair = nextPair();
+        return engine.findPath(pair[0], pair[1]).size();
+    }
+
+    @Override
+    public int findConnection() {
+        Point[] pair = nextPair();
+        return engine.findConnection(pair[0], pair[1]).size();
+    }
+
+    @Override
+    public boolean isConnectable() {
+        Point[] pair = nextPair();
+        return engine.isConnectable(pair[0], pair[1]);
+    }
+
+    @Override
+    public boolean removeImages() {
+        if (nextPair == pairs.length) {
+            return false;
+        }
+        Point[] pair = pairs[nextPair++];
+        engine.removeImages(pair[0], pair[1]);
+        return true;
+    }
+
+    @Override
+    public boolean isBoardEmpty() {
+        return engine.isBoardEmpty();
+    }
+
+    @Override
+    public int shuffleBoard() {
+        engine.shuffleBoard();
+        return engine.getIcon(0, 0);
+    }
+
+    @Override
+    public int generateSolvableBoard() {
+        return engine.generateSolvableBoard(size, SOLVER_NODES).ordinal();
+    }
+}
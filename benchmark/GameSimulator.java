@@ -0,0 +1,310 @@
+import java.awt.Point;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+// Headless capacity test: plays many games against BoardEngine on every core and reports
+// solve rates, moves per level and operation latencies as the board grows.
+// Games follow the Swing games: the first level is 4x4 and each level adds 2 to the grid size.
+// Games run on a work-stealing ForkJoinPool and all results go into lock-free counters and histograms.
+// Nothing here touches Swing.
+//
+// Compile and run from the project root:
+//   javac -d out *.java benchmark/GameSimulator.java
+//   java -cp out GameSimulator games=100000 levels=4 strategies=random,greedy backend=array rule=classic threads=8
+public class GameSimulator {
+    static final int NUM_ICONS = 18; // Same number of icons as the game
+    static final int FIRST_GRID_SIZE = 4; // Same first level as the game
+    static final int GAMES_PER_TASK = 16; // Games one task plays before it stops splitting
+    static final int GREEDY_CANDIDATES = 8; // Moves the greedy strategy compares
+
+    // How the simulated player picks its next move
+    enum Strategy {
+        RANDOM, // Any pair that can be matched right now
+        GREEDY // The pair with the shortest connection line among a few candidates
+    }
+
+    // Timed operations
+    enum Operation {
+        GENERATE_BOARD, FIND_MATCH, FIND_CONNECTION, REMOVE_IMAGES, SHUFFLE
+    }
+
+    // Simulation settings, overridable with key=value arguments
+    long games = 10_000;
+    int levels = 4;
+    Strategy[] strategies = Strategy.values();
+    BoardBackend backend = BoardBackend.ARRAY;
+    ConnectionRule rule = ConnectionRule.CLASSIC;
+    int threads = Runtime.getRuntime().availableProcessors();
+    long solverNodes = 4_000; // Solver positions per board, as in the game; 0 deals boards without proving them
+    long seed = 42;
+
+    private final PrintStream report; // Where results are written
+
+    GameSimulator(PrintStream report, String[] args) {
+        this.report = report;
+        for (String arg : args) {
+            parseArgument(arg);
+        }
+    }
+
+    private void parseArgument(String arg) {
+        int eq = arg.indexOf('=');
+        if (eq < 0) {
+            throw new IllegalArgumentException("Expected key=value but got: " + arg);
+        }
+        String key = arg.substring(0, eq);
+        String[] values = arg.substring(eq + 1).split(",");
+        switch (key) {
+            case "games":
+                games = Long.parseLong(values[0].trim());
+                break;
+            case "levels":
+                levels = Integer.parseInt(values[0].trim());
+                break;
+            case "strategies":
+                strategies = new Strategy[values.length];
+                for (int i = 0; i < values.length; i++) {
+                    strategies[i] = Strategy.valueOf(values[i].trim().toUpperCase());
+                }
+                break;
+            case "backend":
+                backend = BoardBackend.fromName(values[0], BoardBackend.ARRAY);
+                break;
+            case "rule":
+                rule = ConnectionRule.valueOf(values[0].trim().toUpperCase());
+                break;
+            case "threads":
+                threads = Integer.parseInt(values[0].trim());
+                break;
+            case "nodes":
+                solverNodes = Long.parseLong(values[0].trim());
+                break;
+            case "seed":
+                seed = Long.parseLong(values[0].trim());
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown setting: " + key);
+        }
+    }
+
+    void run() {
+        report.printf("%d games per strategy, %d levels, %s backend, %s rule, %d threads, solver budget %d nodes%n",
+                games, levels, backend, rule, threads, solverNodes);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            for (Strategy strategy : strategies) {
+                Results results = new Results(levels);
+                long start = System.nanoTime();
+                pool.invoke(new GameBatch(strategy, results, 0, games));
+                long elapsed = System.nanoTime() - start;
+                print(strategy, results, elapsed);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private void print(Strategy strategy, Results results, long elapsedNanos) {
+        report.println();
+        report.printf(Locale.ROOT, "strategy %s: %.1f games/s, %d of %d games cleared every level%n",
+                strategy, games * 1_000_000_000.0 / elapsedNanos, results.gamesWon.sum(), games);
+
+        report.printf("%5s %5s %10s %9s %9s %10s %9s %12s %12s%n",
+                "level", "size", "played", "cleared", "proven", "moves/lvl", "shuffles", "gen p50 ns", "gen p99 ns");
+        for (int level = 0; level < levels; level++) {
+            long played = results.played[level].sum();
+            if (played == 0) {
+                break;
+            }
+            report.printf(Locale.ROOT, "%5d %5d %10d %8.2f%% %8.2f%% %10.1f %9d %12d %12d%n",
+                    level + 1, FIRST_GRID_SIZE + 2 * level, played,
+                    100.0 * results.cleared[level].sum() / played,
+                    100.0 * results.proven[level].sum() / played,
+                    (double) results.moves[level].sum() / played,
+                    results.shuffles[level].sum(),
+                    results.generation[level].percentile(50), results.generation[level].percentile(99));
+        }
+
+        report.printf("%-15s %12s %10s %10s %10s %10s %10s%n",
+                "operation", "count", "mean ns", "p50 ns", "p90 ns", "p99 ns", "p99.9 ns");
+        for (Operation operation : Operation.values()) {
+            LatencyHistogram histogram = results.latency[operation.ordinal()];
+            report.printf("%-15s %12d %10d %10d %10d %10d %10d%n", operation, histogram.count(), histogram.mean(),
+                    histogram.percentile(50), histogram.percentile(90), histogram.percentile(99), histogram.percentile(99.9));
+        }
+        report.flush();
+    }
+
+    // Everything the games of one strategy add up to; every field can be updated from any thread
+    private static class Results {
+        final LongAdder gamesWon = new LongAdder();
+        final LongAdder[] played; // Per level
+        final LongAdder[] cleared;
+        final LongAdder[] proven; // Boards the solver proved could be cleared, or that were built clearable
+        final LongAdder[] moves;
+        final LongAdder[] shuffles;
+        final LatencyHistogram[] generation; // Per level: time to deal (and prove) the board
+        final LatencyHistogram[] latency = new LatencyHistogram[Operation.values().length];
+
+        Results(int levels) {
+            played = adders(levels);
+            cleared = adders(levels);
+            proven = adders(levels);
+            moves = adders(levels);
+            shuffles = adders(levels);
+            generation = new LatencyHistogram[levels];
+            for (int i = 0; i < levels; i++) {
+                generation[i] = new LatencyHistogram();
+            }
+            for (int i = 0; i < latency.length; i++) {
+                latency[i] = new LatencyHistogram();
+            }
+        }
+
+        private static LongAdder[] adders(int count) {
+            LongAdder[] adders = new LongAdder[count];
+            for (int i = 0; i < count; i++) {
+                adders[i] = new LongAdder();
+            }
+            return adders;
+        }
+
+        void record(Operation operation, long nanos) {
+            latency[operation.ordinal()].record(nanos);
+        }
+    }
+
+    // Plays games [from, to), splitting the range while it is large so idle workers can steal half
+    private class GameBatch extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Strategy strategy;
+        private final Results results;
+        private final long from;
+        private final long to;
+
+        GameBatch(Strategy strategy, Results results, long from, long to) {
+            this.strategy = strategy;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > GAMES_PER_TASK) {
+                long middle = (from + to) >>> 1;
+                invokeAll(new GameBatch(strategy, results, from, middle), new GameBatch(strategy, results, middle, to));
+                return;
+            }
+            for (long game = from; game < to; game++) {
+                playGame(strategy, results, game);
+            }
+        }
+    }
+
+    // Play one game until a level cannot be cleared or every level is done
+    private void playGame(Strategy strategy, Results results, long game) {
+        SplittableRandom random = new SplittableRandom(seed + game * 0x9E3779B97F4A7C15L); // Same game number, same game
+        BoardEngine engine = new BoardEngine(backend, NUM_ICONS);
+        engine.setRule(rule);
+        engine.setSeed(random.nextLong());
+
+        int gridSize = FIRST_GRID_SIZE;
+        for (int level = 0; level < levels; level++) {
+            results.played[level].increment();
+            long start = System.nanoTime();
+            if (solverNodes > 0) {
+                if (engine.generateSolvableBoard(gridSize, solverNodes) == BoardSolver.Status.SOLVED) {
+                    results.proven[level].increment();
+                }
+            } else {
+                engine.initializeBoard(gridSize);
+            }
+            long elapsed = System.nanoTime() - start;
+            results.generation[level].record(elapsed);
+            results.record(Operation.GENERATE_BOARD, elapsed);
+
+            if (!playLevel(engine, strategy, random, results, level)) {
+                return;
+            }
+            results.cleared[level].increment();
+            gridSize += 2; // Like nextLevel in the games
+        }
+        results.gamesWon.increment();
+    }
+
+    // Make moves until the board is empty; false if the player got stuck even after reshuffling
+    private boolean playLevel(BoardEngine engine, Strategy strategy, SplittableRandom random, Results results, int level) {
+        long moves = 0;
+        while (!engine.isBoardEmpty()) {
+            if (!engine.hasAvailableMoves()) {
+                long start = System.nanoTime();
+                engine.shuffleIfStuck();
+                results.record(Operation.SHUFFLE, System.nanoTime() - start);
+                results.shuffles[level].increment();
+                if (!engine.hasAvailableMoves()) {
+                    results.moves[level].add(moves);
+                    return false;
+                }
+            }
+
+            Point[] move = strategy == Strategy.RANDOM ? randomMove(engine, random) : greedyMove(engine, random, results);
+            long start = System.nanoTime();
+            MatchResult match = engine.findMatch(move[0], move[1]); // What a click on the second tile does
+            results.record(Operation.FIND_MATCH, System.nanoTime() - start);
+            if (match == null) {
+                throw new IllegalStateException("Available move " + move[0] + " " + move[1] + " did not match");
+            }
+
+            start = System.nanoTime();
+            engine.removeImages(move[0], move[1]);
+            results.record(Operation.REMOVE_IMAGES, System.nanoTime() - start);
+            moves++;
+        }
+        results.moves[level].add(moves);
+        return true;
+    }
+
+    private static Point[] randomMove(BoardEngine engine, SplittableRandom random) {
+        return engine.getAvailableMove(random.nextInt(engine.getAvailableMoveCount()));
+    }
+
+    // Compare a few available moves, starting at a random one, and take the one with the shortest line
+    private static Point[] greedyMove(BoardEngine engine, SplittableRandom random, Results results) {
+        int count = engine.getAvailableMoveCount();
+        int first = random.nextInt(count);
+        Point[] best = null;
+        int bestLength = Integer.MAX_VALUE;
+        for (int i = 0; i < Math.min(count, GREEDY_CANDIDATES); i++) {
+            Point[] move = engine.getAvailableMove((first + i) % count);
+            long start = System.nanoTime();
+            List<Point> line = engine.findConnection(move[0], move[1]);
+            results.record(Operation.FIND_CONNECTION, System.nanoTime() - start);
+            int length = lineLength(line);
+            if (length < bestLength) {
+                bestLength = length;
+                best = move;
+            }
+        }
+        return best;
+    }
+
+    // Cells covered by a line given as its corner points
+    private static int lineLength(List<Point> line) {
+        int length = 0;
+        for (int i = 0; i + 1 < line.size(); i++) {
+            length += Math.abs(line.get(i + 1).x - line.get(i).x) + Math.abs(line.get(i + 1).y - line.get(i).y);
+        }
+        return length;
+    }
+
+    public static void main(String[] args) {
+        new GameSimulator(System.out, args).run();
+    }
+}
@@ -0,0 +1,220 @@
+import java.awt.Point;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+// Checks the fewest-bends line search of ConnectionRule.FREE against a reference: a 0-1 BFS over
+// (cell, direction) states, which finds the fewest bends by brute force. Random boards of several sizes
+// and fills are compared on random pairs of tiles: BoardEngine.findPath must find a line exactly when the
+// reference does, with as many bends, and the line must be valid: straight segments through empty cells
+// or the ring around the board, turning at every point between its two tiles.
+// The games play the classic rule, so only this checker, GameSimulator rule=free and the benchmarks run that search.
+// Prints the first few mismatches and exits with status 1 if there are any.
+//
+// Compile and run from the project root:
+//   javac -d out *.java benchmark/PathChecker.java
+//   java -cp out PathChecker boards=2000 queries=40 seed=7 maxSize=40
+//   java -Djava.util.concurrent.ForkJoinPool.common.parallelism=4 -cp out PathChecker parallel=true
+public class PathChecker {
+    static final int NUM_ICONS = 18; // Same number of icons as the game
+    static final int MAX_REPORTED = 10; // Mismatches printed in full
+
+    // Checker settings, overridable with key=value arguments
+    int boards = 2000;
+    int queries = 40; // Pairs of tiles checked per board
+    int maxSize = 40; // Boards are 4x4 up to this size, in steps of 2
+    long seed = 7;
+    boolean parallel; // Search every board with ParallelPathSearch, which needs a common pool of more than one thread
+
+    private int checked;
+    private int needingSearch; // Pairs whose fewest-bends line has more than two bends
+    private int mismatches;
+
+    PathChecker(String[] args) {
+        for (String arg : args) {
+            parseArgument(arg);
+        }
+    }
+
+    private void parseArgument(String arg) {
+        int eq = arg.indexOf('=');
+        if (eq < 0) {
+            throw new IllegalArgumentException("Expected key=value but got: " + arg);
+        }
+        String key = arg.substring(0, eq);
+        String value = arg.substring(eq + 1).trim();
+        switch (key) {
+            case "boards":
+                boards = Integer.parseInt(value);
+                break;
+            case "queries":
+                queries = Integer.parseInt(value);
+                break;
+            case "maxSize":
+                maxSize = Integer.parseInt(value);
+                break;
+            case "seed":
+                seed = Long.parseLong(value);
+                break;
+            case "parallel":
+                parallel = Boolean.parseBoolean(value);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown setting: " + key);
+        }
+    }
+
+    boolean run() {
+        if (parallel) {
+            if (ForkJoinPool.getCommonPoolParallelism() < 2) {
+                throw new IllegalStateException("The parallel search needs -Djava.util.concurrent.ForkJoinPool.common.parallelism=2 or more");
+            }
+            System.setProperty("onet.parallelSearchCells", "0"); // Read by every engine made from here on
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int b = 0; b < boards; b++) {
+            int size = 4 + 2 * random.nextInt((maxSize - 4) / 2 + 1);
+            double fill = random.nextDouble(); // Share of the cells holding a tile
+            int[] icons = new int[size * size];
+            for (int cell = 0; cell < icons.length; cell++) {
+                icons[cell] = random.nextDouble() < fill ? random.nextInt(NUM_ICONS) : BoardStore.EMPTY;
+            }
+            BoardEngine engine = new BoardEngine(BoardBackend.ARRAY, NUM_ICONS);
+            engine.setRule(ConnectionRule.FREE);
+            engine.loadBoard(size, icons, random.nextLong());
+
+            for (int q = 0; q < queries; q++) {
+                Point from = new Point(random.nextInt(size), random.nextInt(size));
+                Point to = new Point(random.nextInt(size), random.nextInt(size));
+                if (!from.equals(to) && !isEmpty(icons, size, from.x, from.y) && !isEmpty(icons, size, to.x, to.y)) {
+                    check(engine, icons, size, from, to);
+                }
+            }
+        }
+        System.out.printf("%d pairs checked, %d needing more than two bends, %d mismatches%n",
+                checked, needingSearch, mismatches);
+        return mismatches == 0;
+    }
+
+    private void check(BoardEngine engine, int[] icons, int size, Point from, Point to) {
+        checked++;
+        int expected = fewestBends(icons, size, from, to);
+        if (expected > 2) {
+            needingSearch++;
+        }
+        List<Point> line = engine.findPath(from, to);
+        String problem;
+        if (expected < 0) {
+            problem = line.isEmpty() ? null : "found a line where there is none";
+        } else if (line.isEmpty()) {
+            problem = "found no line";
+        } else if (line.size() - 2 != expected) {
+            problem = (line.size() - 2) + " bends instead of " + expected;
+        } else {
+            problem = validate(icons, size, from, to, line);
+        }
+        if (problem != null) {
+            mismatches++;
+            if (mismatches <= MAX_REPORTED) {
+                System.out.printf("%dx%d board, (%d, %d) to (%d, %d): %s: %s%n",
+                        size, size, from.x, from.y, to.x, to.y, problem, line);
+            }
+        }
+    }
+
+    // Why line is not a valid line from 'from' to 'to', or null if it is
+    private static String validate(int[] icons, int size, Point from, Point to, List<Point> line) {
+        if (!line.get(0).equals(from) || !line.get(line.size() - 1).equals(to)) {
+            return "does not join the two tiles";
+        }
+        int lastDir = -1;
+        for (int i = 0; i + 1 < line.size(); i++) {
+            Point a = line.get(i);
+            Point b = line.get(i + 1);
+            if ((a.x != b.x) == (a.y != b.y)) {
+                return "segment " + i + " is not straight";
+            }
+            int dir = b.x > a.x ? 0 : b.x < a.x ? 1 : b.y > a.y ? 2 : 3;
+            if (lastDir >= 0 && (dir == lastDir || dir == (lastDir ^ 1))) {
+                return "no bend at point " + i;
+            }
+            lastDir = dir;
+            int dx = Integer.signum(b.x - a.x);
+            int dy = Integer.signum(b.y - a.y);
+            for (int x = a.x + dx, y = a.y + dy; x != b.x || y != b.y; x += dx, y += dy) {
+                if (!isEmpty(icons, size, x, y)) {
+                    return "segment " + i + " crosses a tile";
+                }
+            }
+            if (i + 1 < line.size() - 1 && !isEmpty(icons, size, b.x, b.y)) {
+                return "bend " + i + " is on a tile";
+            }
+        }
+        return null;
+    }
+
+    // Fewest bends of a line from 'from' to 'to', or -1 if there is none: a 0-1 BFS over (cell, direction)
+    // on the board and its ring, where going on costs nothing and turning costs one bend
+    static int fewestBends(int[] icons, int size, Point from, Point to) {
+        int stride = size + 2; // Coordinates -1 to size
+        int[] bends = new int[stride * stride * 4];
+        Arrays.fill(bends, Integer.MAX_VALUE);
+        int[] deque = new int[bends.length * 2];
+        int head = bends.length;
+        int tail = head;
+        for (int dir = 0; dir < 4; dir++) {
+            int state = ((from.x + 1) * stride + from.y + 1) * 4 + dir;
+            bends[state] = -1; // The first segment's direction is free, and is not a bend
+            deque[tail++] = state;
+        }
+
+        int best = Integer.MAX_VALUE;
+        while (head != tail) {
+            int state = deque[head++];
+            int dir = state & 3;
+            int x = state / 4 / stride - 1;
+            int y = state / 4 % stride - 1;
+            for (int next = 0; next < 4; next++) {
+                if (next == (dir ^ 1) && bends[state] >= 0) {
+                    continue; // Turning back would cross the same cells
+                }
+                int nx = x + (next == 0 ? 1 : next == 1 ? -1 : 0);
+                int ny = y + (next == 2 ? 1 : next == 3 ? -1 : 0);
+                if (nx < -1 || ny < -1 || nx > size || ny > size) {
+                    continue;
+                }
+                int cost = bends[state] + (next == dir || bends[state] < 0 ? 0 : 1);
+                int turned = Math.max(cost, 0);
+                if (nx == to.x && ny == to.y) {
+                    best = Math.min(best, turned);
+                    continue;
+                }
+                if (!isEmpty(icons, size, nx, ny)) {
+                    continue;
+                }
+                int nextState = ((nx + 1) * stride + ny + 1) * 4 + next;
+                if (turned < bends[nextState]) {
+                    bends[nextState] = turned;
+                    if (turned == Math.max(bends[state], 0)) {
+                        deque[--head] = nextState; // No new bend, so it goes first
+                    } else {
+                        deque[tail++] = nextState;
+                    }
+                }
+            }
+        }
+        return best == Integer.MAX_VALUE ? -1 : best;
+    }
+
+    // True for an empty cell of the board and for the ring around it
+    private static boolean isEmpty(int[] icons, int size, int x, int y) {
+        return x < 0 || y < 0 || x >= size || y >= size || icons[x * size + y] == BoardStore.EMPTY;
+    }
+
+    public static void main(String[] args) {
+        if (!new PathChecker(args).run()) {
+            System.exit(1);
+        }
+    }
+}